@@ -2,6 +2,8 @@ package com.mchis.assignment;
 
 import com.mchis.part.Part;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.OneToMany;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
@@ -23,6 +25,9 @@ public class Assignment extends Part {
     private String path;
     private boolean uploadedStatus;
     private boolean gradedStatus;
+    // kept in step with startTime and endTime by AssignmentScheduler
+    @Enumerated(EnumType.STRING)
+    private AssignmentState state;
 
     @OneToMany(mappedBy = "assignment")
     private List<AssignmentGrade> grades;
@@ -0,0 +1,11 @@
+package com.mchis.assignment;
+
+import java.time.LocalDateTime;
+
+public record AssignmentFile(
+        String path,
+        String name,
+        String title,
+        LocalDateTime startTime
+) {
+}
@@ -12,6 +12,10 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "uk_assignment_grade_student_assignment",
+        columnNames = {"student_id", "assignment_id"}
+))
 public class AssignmentGrade {
     @Id
     @GeneratedValue
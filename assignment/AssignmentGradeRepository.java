@@ -7,4 +7,6 @@ import java.util.Optional;
 
 public interface AssignmentGradeRepository extends JpaRepository<AssignmentGrade, Integer> {
     Optional<AssignmentGrade> findByStudentAndAssignment(User student, Assignment assignment);
+
+    Optional<AssignmentGrade> findByStudentIdAndAssignmentId(Integer studentId, Integer assignmentId);
 }
@@ -0,0 +1,57 @@
+package com.mchis.assignment;
+
+import com.mchis.email.EmailService;
+import com.mchis.enrollment.EnrollmentRepository;
+import jakarta.mail.MessagingException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+
+/**
+ * Sends the "due in 24 hours" reminders of an assignment to the enrolled students who have not submitted yet.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AssignmentReminders {
+    private static final int FETCH_SIZE = 1024;
+    private static final String RECIPIENTS = "select u.email, u.firstname, p.title, p.end_time from part p "
+            + "join section s on s.id = p.section_id "
+            + "join " + EnrollmentRepository.TABLE + " e on e." + EnrollmentRepository.COURSE_COLUMN + " = s.course_id "
+            + "join _user u on u.id = e." + EnrollmentRepository.USER_COLUMN + " "
+            + "where p.id = ? and not exists (select 1 from submission sb where sb.assignment_id = p.id and sb.student_id = u.id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmailService emailService;
+
+    /**
+     * Streams the recipients and sends each mail before reading the next row, so the batch is never held
+     * in memory. Runs on the scheduler's reminder worker, which is the one thread that waits on SMTP.
+     */
+    @Transactional(readOnly = true)
+    public void remind(Integer assignmentId) {
+        int[] sent = new int[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(RECIPIENTS);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setInt(1, assignmentId);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            Timestamp dueAt = rs.getTimestamp(4);
+            try {
+                emailService.sendAssignmentReminder(rs.getString(1), rs.getString(2), rs.getString(3),
+                        dueAt == null ? null : dueAt.toLocalDateTime());
+                sent[0]++;
+            } catch (MessagingException e) {
+                log.warn(String.format("Failed to send reminder of assignment %d to %s", assignmentId, rs.getString(1)), e);
+            }
+        });
+        log.info(String.format("Sent %d reminders for assignment %d", sent[0], assignmentId));
+    }
+}
@@ -1,6 +1,78 @@
 package com.mchis.assignment;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface AssignmentRepository extends JpaRepository<Assignment, Integer> {
+    Optional<Assignment> findByIdAndSectionIdAndSectionCourseId(Integer id, Integer sectionId, Integer courseId);
+
+    boolean existsByIdAndSectionIdAndSectionCourseId(Integer id, Integer sectionId, Integer courseId);
+
+    @Query("select a.id from Assignment a where a.section.id = :sectionId")
+    List<Integer> findIdsBySectionId(@Param("sectionId") Integer sectionId);
+
+    @Query("select a.id from Assignment a where a.section.course.id = :courseId")
+    List<Integer> findIdsByCourseId(@Param("courseId") Integer courseId);
+
+    @Query("""
+            select new com.mchis.assignment.AssignmentWindow(a.startTime, a.endTime)
+            from Assignment a
+            where a.id = :id and a.section.id = :sectionId and a.section.course.id = :courseId
+            """)
+    Optional<AssignmentWindow> findWindow(
+            @Param("id") Integer id,
+            @Param("sectionId") Integer sectionId,
+            @Param("courseId") Integer courseId
+    );
+
+    @Query("select new com.mchis.assignment.AssignmentSchedule(a.id, a.startTime, a.endTime) from Assignment a where a.state <> :closed or a.state is null")
+    List<AssignmentSchedule> findPendingSchedules(@Param("closed") AssignmentState closed);
+
+    @Modifying
+    @Transactional
+    @Query("update Assignment a set a.state = :state where a.id = :id and (a.state <> :state or a.state is null)")
+    int updateState(@Param("id") Integer id, @Param("state") AssignmentState state);
+
+    /**
+     * Sets the state of every assignment that is not closed yet from its start and end time, in one statement.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update Assignment a set a.state = case
+                when a.endTime is not null and a.endTime <= :now then :closed
+                when a.startTime is not null and a.startTime > :now then :scheduled
+                else :open end
+            where a.state <> :closed or a.state is null
+            """)
+    int syncStates(
+            @Param("now") LocalDateTime now,
+            @Param("scheduled") AssignmentState scheduled,
+            @Param("open") AssignmentState open,
+            @Param("closed") AssignmentState closed
+    );
+
+    @Query("""
+            select new com.mchis.assignment.AssignmentFile(a.path, a.name, a.title, a.startTime)
+            from Assignment a
+            where a.id = :id and a.section.id = :sectionId and a.section.course.id = :courseId
+            """)
+    Optional<AssignmentFile> findFile(
+            @Param("id") Integer id,
+            @Param("sectionId") Integer sectionId,
+            @Param("courseId") Integer courseId
+    );
+
+    // conditional so that only the first submission writes the assignment row
+    @Modifying
+    @Transactional
+    @Query("update Assignment a set a.uploadedStatus = true where a.id = :id and a.uploadedStatus = false")
+    int markSubmitted(@Param("id") Integer id);
 }
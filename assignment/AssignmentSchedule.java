@@ -0,0 +1,10 @@
+package com.mchis.assignment;
+
+import java.time.LocalDateTime;
+
+public record AssignmentSchedule(
+        Integer id,
+        LocalDateTime startTime,
+        LocalDateTime endTime
+) {
+}
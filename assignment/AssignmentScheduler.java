@@ -0,0 +1,174 @@
+package com.mchis.assignment;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the open and close transitions and the due reminders of assignments from an in-memory
+ * {@link TimingWheel}, loaded at startup and kept current by the assignment mutations in {@code CourseService}.
+ * <p>
+ * The wheel ticks on its own thread rather than Spring's single scheduler thread, so the other scheduled jobs
+ * cannot delay a transition. Reminders, which stream recipients and talk to SMTP, run on a separate worker so
+ * that a large course never holds up the tick either.
+ */
+@Component
+@Slf4j
+public class AssignmentScheduler {
+    private static final Duration REMINDER_LEAD = Duration.ofHours(24);
+
+    private final AssignmentRepository assignmentRepository;
+    private final AssignmentReminders reminders;
+    private final TimingWheel<Event> wheel;
+    private final long tickMillis;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(daemon("assignment-scheduler"));
+    private final ExecutorService reminderWorker = Executors.newSingleThreadExecutor(daemon("assignment-reminders"));
+    // the pending timers of each assignment, so an edit or delete can cancel them in O(1)
+    private final Map<Integer, List<TimingWheel.Timer<Event>>> timers = new ConcurrentHashMap<>();
+
+    public AssignmentScheduler(
+            AssignmentRepository assignmentRepository,
+            AssignmentReminders reminders,
+            @Value("${application.assignment.scheduler.tick-ms:1000}") long tickMillis
+    ) {
+        this.assignmentRepository = assignmentRepository;
+        this.reminders = reminders;
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Schedules every assignment that is not closed yet and catches up on transitions missed while the application was down.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime now = LocalDateTime.now();
+        List<AssignmentSchedule> schedules = assignmentRepository.findPendingSchedules(AssignmentState.CLOSED);
+        int changed = assignmentRepository.syncStates(now, AssignmentState.SCHEDULED, AssignmentState.OPEN, AssignmentState.CLOSED);
+        for (AssignmentSchedule schedule : schedules) {
+            register(schedule.id(), schedule.startTime(), schedule.endTime(), now);
+        }
+        log.info(String.format("Scheduled %d assignments, %d timers pending, %d states caught up",
+                schedules.size(), wheel.size(), changed));
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        reminderWorker.shutdownNow();
+    }
+
+    /**
+     * Replaces the timers of the assignment once the surrounding transaction commits.
+     */
+    public void schedule(Integer assignmentId, LocalDateTime startTime, LocalDateTime endTime) {
+        afterCommit(() -> register(assignmentId, startTime, endTime, LocalDateTime.now()));
+    }
+
+    public void cancel(Integer assignmentId) {
+        afterCommit(() -> cancelTimers(assignmentId));
+    }
+
+    private void tick() {
+        for (Event event : wheel.advance(System.currentTimeMillis())) {
+            try {
+                switch (event.type()) {
+                    case OPEN -> assignmentRepository.updateState(event.assignmentId(), AssignmentState.OPEN);
+                    case CLOSE -> {
+                        assignmentRepository.updateState(event.assignmentId(), AssignmentState.CLOSED);
+                        timers.remove(event.assignmentId());
+                    }
+                    case REMIND -> reminderWorker.execute(() -> remind(event.assignmentId()));
+                }
+            } catch (RuntimeException e) {
+                log.error(String.format("Failed to run %s of assignment %d", event.type(), event.assignmentId()), e);
+            }
+        }
+    }
+
+    private void remind(Integer assignmentId) {
+        try {
+            reminders.remind(assignmentId);
+        } catch (RuntimeException e) {
+            log.error(String.format("Failed to run REMIND of assignment %d", assignmentId), e);
+        }
+    }
+
+    private void register(Integer assignmentId, LocalDateTime startTime, LocalDateTime endTime, LocalDateTime now) {
+        cancelTimers(assignmentId);
+        List<TimingWheel.Timer<Event>> scheduled = new ArrayList<>(3);
+        if (startTime != null && startTime.isAfter(now)) {
+            scheduled.add(wheel.schedule(toMillis(startTime), new Event(assignmentId, EventType.OPEN)));
+        }
+        if (endTime != null && endTime.isAfter(now)) {
+            LocalDateTime remindAt = endTime.minus(REMINDER_LEAD);
+            if (remindAt.isAfter(now)) {
+                scheduled.add(wheel.schedule(toMillis(remindAt), new Event(assignmentId, EventType.REMIND)));
+            }
+            scheduled.add(wheel.schedule(toMillis(endTime), new Event(assignmentId, EventType.CLOSE)));
+        }
+        if (!scheduled.isEmpty()) {
+            timers.put(assignmentId, scheduled);
+        }
+    }
+
+    private void cancelTimers(Integer assignmentId) {
+        List<TimingWheel.Timer<Event>> pending = timers.remove(assignmentId);
+        if (pending != null) {
+            pending.forEach(wheel::cancel);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private enum EventType {
+        OPEN,
+        CLOSE,
+        REMIND
+    }
+
+    private record Event(Integer assignmentId, EventType type) {
+    }
+}
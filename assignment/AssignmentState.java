@@ -0,0 +1,20 @@
+package com.mchis.assignment;
+
+import java.time.LocalDateTime;
+
+public enum AssignmentState {
+    SCHEDULED,
+    OPEN,
+    CLOSED,
+    ;
+
+    public static AssignmentState at(LocalDateTime startTime, LocalDateTime endTime, LocalDateTime now) {
+        if (endTime != null && !now.isBefore(endTime)) {
+            return CLOSED;
+        }
+        if (startTime != null && now.isBefore(startTime)) {
+            return SCHEDULED;
+        }
+        return OPEN;
+    }
+}
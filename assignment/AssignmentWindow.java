@@ -0,0 +1,9 @@
+package com.mchis.assignment;
+
+import java.time.LocalDateTime;
+
+public record AssignmentWindow(
+        LocalDateTime startTime,
+        LocalDateTime endTime
+) {
+}
@@ -0,0 +1,153 @@
+package com.mchis.assignment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel with {@value #SLOTS} slots per level. A timer lives in a doubly linked bucket,
+ * so scheduling and cancelling are O(1). Timers due further out than level 0 covers sit in a coarser level
+ * and are cascaded into finer levels as the wheel reaches their slot, the same scheme the Linux kernel and
+ * Kafka use for large numbers of pending timeouts.
+ * <p>
+ * All methods are thread safe. Expired payloads are returned by {@link #advance(long)} rather than run
+ * under the wheel's lock.
+ */
+class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // 64^5 ticks, about 34 years at one second per tick, anything later waits in the top level
+    private static final int LEVELS = 5;
+
+    private final long tickMillis;
+    private final Timer<T>[][] buckets;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.buckets = (Timer<T>[][]) new Timer<?>[LEVELS][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules the payload at the given wall-clock time. A time that has already passed fires on the next advance.
+     */
+    synchronized Timer<T> schedule(long deadlineMillis, T payload) {
+        long deadlineTick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        Timer<T> timer = new Timer<>(deadlineTick, payload);
+        insert(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Cancels the timer, returns false if it already fired or was cancelled.
+     */
+    synchronized boolean cancel(Timer<T> timer) {
+        if (timer.level < 0) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward to the given wall-clock time and returns the payloads that expired on the way, in order.
+     */
+    synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Timer<T> timer = detach(0, (int) (currentTick & SLOT_MASK));
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                timer.next = null;
+                timer.level = -1;
+                size--;
+                expired.add(timer.payload);
+                timer = next;
+            }
+        }
+        return expired;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Redistributes the coarser slots the wheel has just entered into finer levels, top down.
+     */
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                continue;
+            }
+            Timer<T> timer = detach(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                timer.next = null;
+                insert(timer);
+                timer = next;
+            }
+        }
+    }
+
+    private void insert(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((timer.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Timer<T> head = buckets[level][slot];
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        buckets[level][slot] = timer;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            buckets[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+
+    private Timer<T> detach(int level, int slot) {
+        Timer<T> head = buckets[level][slot];
+        buckets[level][slot] = null;
+        return head;
+    }
+
+    static final class Timer<T> {
+        private final long deadlineTick;
+        private final T payload;
+        private Timer<T> prev;
+        private Timer<T> next;
+        // -1 once the timer fired or was cancelled
+        private int level = -1;
+        private int slot;
+
+        private Timer(long deadlineTick, T payload) {
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+    }
+}
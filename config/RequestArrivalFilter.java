@@ -0,0 +1,34 @@
+package com.mchis.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Records when a request arrived, before any filter or the multipart resolver reads its body, so handlers can
+ * tell when an upload started rather than when it finished.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestArrivalFilter extends OncePerRequestFilter {
+    public static final String ARRIVED_AT = RequestArrivalFilter.class.getName() + ".arrivedAt";
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        request.setAttribute(ARRIVED_AT, LocalDateTime.now());
+        filterChain.doFilter(request, response);
+    }
+}
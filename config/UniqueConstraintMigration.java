@@ -0,0 +1,69 @@
+package com.mchis.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Adds unique constraints the original schema did not have, after removing the duplicate rows it allowed. Hibernate's
+ * schema update fails to add such a constraint while duplicates exist and only logs it, which would leave the
+ * {@code on conflict} inserts relying on it broken at runtime.
+ * <p>
+ * Runs once the entity manager factory has updated the schema and before any request is served. Each table is locked
+ * against writes while it is cleaned, so another node cannot insert a new duplicate before the constraint is in place.
+ */
+@Component
+@Slf4j
+@DependsOn("entityManagerFactory")
+public class UniqueConstraintMigration {
+    // keeps the latest grade of each student and assignment
+    private static final String DEDUPE_GRADES = """
+            delete from assignment_grade g using assignment_grade newer
+            where newer.student_id = g.student_id and newer.assignment_id = g.assignment_id and newer.id > g.id
+            """;
+    // the join table has no key, rows that are otherwise identical are told apart by their physical location
+    private static final String DEDUPE_ENROLLMENTS = """
+            delete from students_courses e using students_courses other
+            where other.course_id = e.course_id and other.student_id = e.student_id and other.ctid < e.ctid
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public UniqueConstraintMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        addUniqueConstraint("assignment_grade", "uk_assignment_grade_student_assignment", "student_id, assignment_id", DEDUPE_GRADES);
+        // student counts that included the duplicates are corrected by CourseCounterRepairJob
+        addUniqueConstraint("students_courses", "uk_students_courses", "course_id, student_id", DEDUPE_ENROLLMENTS);
+    }
+
+    private void addUniqueConstraint(String table, String constraint, String columns, String dedupe) {
+        if (exists(constraint)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("lock table " + table + " in share row exclusive mode");
+            // another node may have added it while we waited for the lock
+            if (exists(constraint)) {
+                return;
+            }
+            int removed = jdbcTemplate.update(dedupe);
+            jdbcTemplate.execute("alter table " + table + " add constraint " + constraint + " unique (" + columns + ")");
+            log.info(String.format("Removed %d duplicate rows from %s and added %s", removed, table, constraint));
+        });
+    }
+
+    private boolean exists(String constraint) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from pg_constraint where conname = ?", Integer.class, constraint);
+        return count != null && count > 0;
+    }
+}
@@ -7,6 +7,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.util.List;
@@ -19,12 +21,36 @@ import static jakarta.persistence.CascadeType.*;
 @Entity
 @Builder
 @EntityListeners(AuditingEntityListener.class)
+// only changed columns are written, so editing a course never overwrites the counters adjusted in place
+@DynamicUpdate
+@Table(indexes = {
+        @Index(name = "idx_course_name_id", columnList = "name, id"),
+        @Index(name = "idx_course_teacher_name_id", columnList = "teacher_id, name, id")
+})
 public class Course {
     @Id
     @GeneratedValue
     private Integer id;
     private String name;
     private String description;
+    // maximum number of students, null for no limit
+    private Integer capacity;
+    // denormalized counts, see CourseCounterRepairJob
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int studentCount;
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int assistantCount;
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int sectionCount;
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int partCount;
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int assignmentCount;
     @ManyToMany(mappedBy = "learningCourses")
     private List<User> students;
     @ManyToMany(mappedBy = "assistingCourses")
@@ -0,0 +1,78 @@
+package com.mchis.course;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of immutable course read models. Entries are evicted by size and age,
+ * and explicitly by the course mutations in {@link CourseService}.
+ */
+@Component
+public class CourseCache {
+    private final Cache<Integer, CourseDetail> details;
+    private final Cache<Integer, CourseOutline> outlines;
+
+    public CourseCache(
+            @Value("${application.course.cache.maximum-size:10000}") long maximumSize,
+            @Value("${application.course.cache.time-to-live:10m}") Duration timeToLive
+    ) {
+        this.details = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        this.outlines = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    public CourseDetail getDetail(Integer courseId, Function<Integer, CourseDetail> loader) {
+        return details.get(courseId, loader);
+    }
+
+    public CourseOutline getOutline(Integer courseId, Function<Integer, CourseOutline> loader) {
+        return outlines.get(courseId, loader);
+    }
+
+    public void evict(Integer courseId) {
+        details.invalidate(courseId);
+        outlines.invalidate(courseId);
+        // a reader may reload the old state before the surrounding transaction commits
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    details.invalidate(courseId);
+                    outlines.invalidate(courseId);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        details.invalidateAll();
+        outlines.invalidateAll();
+    }
+
+    public Map<String, CourseCacheStats> stats() {
+        return Map.of(
+                "details", toStats(details.stats(), details.estimatedSize()),
+                "outlines", toStats(outlines.stats(), outlines.estimatedSize())
+        );
+    }
+
+    private CourseCacheStats toStats(CacheStats stats, long size) {
+        return new CourseCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), size);
+    }
+}
@@ -0,0 +1,9 @@
+package com.mchis.course;
+
+public record CourseCacheStats(
+        long hitCount,
+        long missCount,
+        long evictionCount,
+        long size
+) {
+}
@@ -9,12 +9,14 @@ import com.mchis.text.TextRequest;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
@@ -24,15 +26,30 @@ public class CourseController {
     private final CourseService courseService;
 
     @GetMapping("")
-    public ResponseEntity<List<Course>> getAllCourses() {
-        return ResponseEntity.ok(courseService.getAllCourses());
+    public ResponseEntity<CoursePage> getAllCourses(
+            @RequestParam(name = "name", required = false) String name,
+            @RequestParam(name = "teacher", required = false) Integer teacherId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false) Integer size
+    ) {
+        return ResponseEntity.ok(courseService.getCatalog(name, teacherId, cursor, size));
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, CourseCacheStats>> getCacheStats() {
+        return ResponseEntity.ok(courseService.getCacheStats());
     }
 
     @GetMapping("/{course-id}")
-    public ResponseEntity<Course> getCourseById(@PathVariable("course-id") Integer id) {
+    public ResponseEntity<CourseDetail> getCourseById(@PathVariable("course-id") Integer id) {
         return ResponseEntity.ok(courseService.getCourseById(id));
     }
 
+    @GetMapping("/{course-id}/outline")
+    public ResponseEntity<CourseOutline> getCourseOutline(@PathVariable("course-id") Integer id) {
+        return ResponseEntity.ok(courseService.getCourseOutline(id));
+    }
+
     @PostMapping("")
     public ResponseEntity<?> addCourse(
             @RequestBody CourseRequest course,
@@ -41,22 +58,24 @@ public class CourseController {
     }
 
     @GetMapping("/my/{course-id}")
-    public ResponseEntity<Course> getMyCourseById(@PathVariable("course-id") Integer id) {
+    public ResponseEntity<CourseDetail> getMyCourseById(@PathVariable("course-id") Integer id) {
         return ResponseEntity.ok(courseService.getCourseById(id));
     }
 
     @GetMapping("/my")
-    public ResponseEntity<List<Course>> getAllMyCourses(Authentication authentication) {
-        return ResponseEntity.ok(courseService.getAllMyCourses(authentication));
+    public ResponseEntity<StreamingResponseBody> getAllMyCourses(Authentication authentication) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> courseService.writeAllMyCourses(authentication, outputStream));
     }
 
     @GetMapping("/teach/{course-id}")
-    public ResponseEntity<Course> getTeachingCourseById(@PathVariable("course-id") Integer id) {
+    public ResponseEntity<CourseDetail> getTeachingCourseById(@PathVariable("course-id") Integer id) {
         return ResponseEntity.ok(courseService.getCourseById(id));
     }
 
     @PutMapping("/teach/{course-id}")
-    public ResponseEntity<Course> editTeachingCourse(
+    public ResponseEntity<CourseSummary> editTeachingCourse(
             @PathVariable("course-id") Integer courseId,
             @RequestBody CourseRequest request,
             Authentication authentication
@@ -74,8 +93,10 @@ public class CourseController {
     }
 
     @GetMapping("/teach")
-    public ResponseEntity<List<Course>> getAllTeachingCourses(Authentication authentication) {
-        return ResponseEntity.ok(courseService.getAllTeachingCourses(authentication));
+    public ResponseEntity<StreamingResponseBody> getAllTeachingCourses(Authentication authentication) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> courseService.writeAllTeachingCourses(authentication, outputStream));
     }
 
     @PostMapping("/teach/{course-id}/create-section")
@@ -256,22 +277,24 @@ public class CourseController {
     }
 
     @GetMapping("/assist/{course-id}")
-    public ResponseEntity<Course> getAssistingCourseById(@PathVariable("course-id") Integer id) {
+    public ResponseEntity<CourseDetail> getAssistingCourseById(@PathVariable("course-id") Integer id) {
         return ResponseEntity.ok(courseService.getCourseById(id));
     }
 
     @GetMapping("/assist")
-    public ResponseEntity<List<Course>> getAllAssistingCourses(Authentication authentication) {
-        return ResponseEntity.ok(courseService.getAllAssistingCourses(authentication));
-    }
-
-    @PostMapping("/register")
-    public ResponseEntity<Course> registerCourse(@RequestParam("course") Integer id, Authentication authentication) throws OperationNotPermittedException {
-        return ResponseEntity.ok(courseService.registerCourse(id, authentication));
+    public ResponseEntity<StreamingResponseBody> getAllAssistingCourses(Authentication authentication) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> courseService.writeAllAssistingCourses(authentication, outputStream));
     }
 
     @PostMapping("/add-assistant/{email}")
-    public ResponseEntity<Course> addAssistant(@PathVariable("email") String email, Authentication authentication, @RequestParam("course") Integer courseId) throws OperationNotPermittedException {
+    public ResponseEntity<CourseSummary> addAssistant(@PathVariable("email") String email, Authentication authentication, @RequestParam("course") Integer courseId) throws OperationNotPermittedException {
         return ResponseEntity.ok(courseService.addAssistant(email, courseId, authentication));
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> invalidCursor(InvalidCursorException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
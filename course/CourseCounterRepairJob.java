@@ -0,0 +1,77 @@
+package com.mchis.course;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Recomputes the denormalized counters on {@link Course} from the membership and content tables,
+ * correcting any drift left by writes that bypassed {@link CourseService}.
+ */
+@Component
+@Slf4j
+public class CourseCounterRepairJob {
+    // students_courses and assistants_courses store the user in course_id and the course in the other column
+    private static final String REPAIR = """
+            update course c set
+                student_count = (select count(*) from students_courses sc where sc.student_id = c.id),
+                assistant_count = (select count(*) from assistants_courses ac where ac.assistant_id = c.id),
+                section_count = (select count(*) from section s where s.course_id = c.id),
+                part_count = (select count(*) from part p join section s on s.id = p.section_id where s.course_id = c.id),
+                assignment_count = (select count(*) from part p join section s on s.id = p.section_id
+                                    where s.course_id = c.id and p.dtype = 'Assignment')
+            where c.id >= ? and c.id < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StudentCountRepository studentCountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CourseCache courseCache;
+    private final int batchSize;
+
+    public CourseCounterRepairJob(
+            JdbcTemplate jdbcTemplate,
+            StudentCountRepository studentCountRepository,
+            PlatformTransactionManager transactionManager,
+            CourseCache courseCache,
+            @Value("${application.course.counters.repair-batch-size:1000}") int batchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.studentCountRepository = studentCountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.courseCache = courseCache;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Walks the course ids in ranges, one short transaction per range, so no lock is held across the whole table.
+     * Pending student count deltas of a range are dropped, the recomputed count already includes them. The course
+     * rows are locked first: every delta is appended under a key share lock on its course, so enrollments of the
+     * range wait for the repair, and those that committed before it are both counted and discarded.
+     */
+    @Scheduled(cron = "${application.course.counters.repair-cron:0 30 3 * * *}")
+    public void repair() {
+        Integer maxId = jdbcTemplate.queryForObject("select max(id) from course", Integer.class);
+        if (maxId == null) {
+            return;
+        }
+        int updated = 0;
+        for (int from = 0; from <= maxId; from += batchSize) {
+            int lower = from;
+            Integer rows = transactionTemplate.execute(status -> {
+                jdbcTemplate.queryForList("select id from course where id >= ? and id < ? for update",
+                        Integer.class, lower, lower + batchSize);
+                studentCountRepository.discard(lower, lower + batchSize);
+                return jdbcTemplate.update(REPAIR, lower, lower + batchSize);
+            });
+            updated += rows == null ? 0 : rows;
+        }
+        courseCache.evictAll();
+        log.info(String.format("Recomputed counters of %d courses", updated));
+    }
+}
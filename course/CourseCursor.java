@@ -0,0 +1,37 @@
+package com.mchis.course;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last course of a catalog page, in (name, id) order with unnamed courses last.
+ * Handed to clients as an opaque url-safe token, a null name is encoded as the id alone.
+ */
+record CourseCursor(
+        String name,
+        Integer id
+) {
+    private static final char SEPARATOR = '\n';
+
+    static CourseCursor of(CourseSummary course) {
+        return new CourseCursor(course.name(), course.id());
+    }
+
+    String encode() {
+        String raw = name == null ? String.valueOf(id) : id + String.valueOf(SEPARATOR) + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CourseCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = raw.indexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                return new CourseCursor(null, Integer.valueOf(raw));
+            }
+            return new CourseCursor(raw.substring(separatorIndex + 1), Integer.valueOf(raw.substring(0, separatorIndex)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException(String.format("Invalid cursor %s", token));
+        }
+    }
+}
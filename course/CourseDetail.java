@@ -0,0 +1,15 @@
+package com.mchis.course;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.mchis.section.SectionSummary;
+
+import java.util.List;
+
+public record CourseDetail(
+        @JsonUnwrapped CourseSummary course,
+        List<SectionSummary> sections
+) {
+    static CourseDetail of(CourseSummary course, List<SectionSummary> sections) {
+        return new CourseDetail(course, List.copyOf(sections));
+    }
+}
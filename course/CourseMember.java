@@ -0,0 +1,7 @@
+package com.mchis.course;
+
+public record CourseMember(
+        Integer courseId,
+        Integer userId
+) {
+}
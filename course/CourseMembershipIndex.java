@@ -0,0 +1,194 @@
+package com.mchis.course;
+
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.user.User;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index answering whether a user is teacher, assistant or student of a course
+ * without loading the course or its member lists. Loaded once from the database and kept
+ * current by the services that change memberships.
+ */
+@Component
+@Slf4j
+public class CourseMembershipIndex {
+    private static final byte COURSE = 1;
+    private static final byte TEACHER = 1 << 1;
+    private static final byte ASSISTANT = 1 << 2;
+    private static final byte STUDENT = 1 << 3;
+    private static final byte ALL = TEACHER | ASSISTANT | STUDENT;
+    // user ids come from a sequence starting at 1, so 0 marks the course itself
+    private static final int NO_USER = 0;
+
+    private final CourseRepository courseRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MembershipTable table = new MembershipTable(1 << 16);
+    private volatile boolean loaded;
+
+    public CourseMembershipIndex(
+            CourseRepository courseRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.courseRepository = courseRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<CourseMember> teachers = courseRepository.streamTeachers()) {
+                    teachers.forEach(m -> {
+                        table.add(MembershipTable.key(m.courseId(), NO_USER), COURSE);
+                        table.add(MembershipTable.key(m.courseId(), m.userId()), TEACHER);
+                    });
+                }
+                try (Stream<CourseMember> assistants = courseRepository.streamAssistants()) {
+                    assistants.forEach(m -> table.add(MembershipTable.key(m.courseId(), m.userId()), ASSISTANT));
+                }
+                try (Stream<CourseMember> students = courseRepository.streamStudents()) {
+                    students.forEach(m -> table.add(MembershipTable.key(m.courseId(), m.userId()), STUDENT));
+                }
+            });
+            loaded = true;
+            log.info(String.format("Course membership index loaded with %d entries", table.size()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean exists(Integer courseId) {
+        return has(courseId, NO_USER, COURSE);
+    }
+
+    public boolean isTeacher(Integer courseId, Integer userId) {
+        return has(courseId, userId, TEACHER);
+    }
+
+    public boolean isAssistant(Integer courseId, Integer userId) {
+        return has(courseId, userId, ASSISTANT);
+    }
+
+    public boolean isStudent(Integer courseId, Integer userId) {
+        return has(courseId, userId, STUDENT);
+    }
+
+    public void requireTeacher(User user, Integer courseId) throws OperationNotPermittedException {
+        requireCourse(courseId);
+        if (!isTeacher(courseId, user.getId())) {
+            throw new OperationNotPermittedException(String.format("User %s is not the teacher of course %d",
+                    user.getFullName(), courseId));
+        }
+    }
+
+    public void requireAssistant(User user, Integer courseId) throws OperationNotPermittedException {
+        requireCourse(courseId);
+        if (!isAssistant(courseId, user.getId())) {
+            throw new OperationNotPermittedException(String.format("User %s is not assistant of course %d",
+                    user.getFullName(), courseId));
+        }
+    }
+
+    public void requireMember(User user, Integer courseId) throws OperationNotPermittedException {
+        requireCourse(courseId);
+        if (!has(courseId, user.getId(), ALL)) {
+            throw new OperationNotPermittedException(String.format("User %s is not a member of course %d",
+                    user.getFullName(), courseId));
+        }
+    }
+
+    public void addCourse(Integer courseId, Integer teacherId) {
+        afterCommit(() -> update(() -> {
+            table.add(MembershipTable.key(courseId, NO_USER), COURSE);
+            table.add(MembershipTable.key(courseId, teacherId), TEACHER);
+        }));
+    }
+
+    /**
+     * Drops the course and the given members from the index, probing only their keys. An entry missed here
+     * is never reached again, since every lookup first checks the course exists and course ids are not reused.
+     */
+    public void removeCourse(Integer courseId, Integer teacherId, Collection<Integer> memberIds) {
+        afterCommit(() -> update(() -> {
+            table.remove(MembershipTable.key(courseId, NO_USER), COURSE);
+            table.remove(MembershipTable.key(courseId, teacherId), ALL);
+            for (Integer memberId : memberIds) {
+                table.remove(MembershipTable.key(courseId, memberId), ALL);
+            }
+        }));
+    }
+
+    public void addAssistant(Integer courseId, Integer userId) {
+        afterCommit(() -> update(() -> table.add(MembershipTable.key(courseId, userId), ASSISTANT)));
+    }
+
+    public void addStudent(Integer courseId, Integer userId) {
+        afterCommit(() -> update(() -> table.add(MembershipTable.key(courseId, userId), STUDENT)));
+    }
+
+    public void removeStudent(Integer courseId, Integer userId) {
+        afterCommit(() -> update(() -> table.remove(MembershipTable.key(courseId, userId), STUDENT)));
+    }
+
+    private void requireCourse(Integer courseId) {
+        if (!exists(courseId)) {
+            throw new EntityNotFoundException("Course with course id " + courseId + " not found");
+        }
+    }
+
+    private boolean has(Integer courseId, Integer userId, byte flag) {
+        if (courseId == null || userId == null) {
+            return false;
+        }
+        if (!loaded) {
+            load();
+        }
+        lock.readLock().lock();
+        try {
+            return (table.get(MembershipTable.key(courseId, userId)) & flag) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void update(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.mchis.course;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.mchis.section.SectionOutline;
+
+import java.util.List;
+
+public record CourseOutline(
+        @JsonUnwrapped CourseSummary course,
+        List<SectionOutline> sections
+) {
+    static CourseOutline of(CourseSummary course, List<SectionOutline> sections) {
+        return new CourseOutline(course, List.copyOf(sections));
+    }
+}
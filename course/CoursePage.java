@@ -0,0 +1,9 @@
+package com.mchis.course;
+
+import java.util.List;
+
+public record CoursePage(
+        List<CourseSummary> items,
+        String nextCursor
+) {
+}
@@ -1,6 +1,138 @@
 package com.mchis.course;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface CourseRepository extends JpaRepository<Course, Integer> {
+
+    @Query("""
+            select new com.mchis.course.CourseSummary(
+                c.id, c.name, c.description, t.id, concat(t.firstname, ' ', t.lastname), c.capacity,
+                c.studentCount, c.assistantCount, c.sectionCount, c.partCount, c.assignmentCount)
+            from Course c join c.teacher t
+            where (:pattern is null or lower(c.name) like :pattern escape '\\')
+              and (:teacherId is null or t.id = :teacherId)
+            order by c.name nulls last, c.id
+            """)
+    List<CourseSummary> findCatalogFirstPage(
+            @Param("pattern") String pattern,
+            @Param("teacherId") Integer teacherId,
+            Pageable pageable
+    );
+
+    @Query("""
+            select new com.mchis.course.CourseSummary(
+                c.id, c.name, c.description, t.id, concat(t.firstname, ' ', t.lastname), c.capacity,
+                c.studentCount, c.assistantCount, c.sectionCount, c.partCount, c.assignmentCount)
+            from Course c join c.teacher t
+            where (:pattern is null or lower(c.name) like :pattern escape '\\')
+              and (:teacherId is null or t.id = :teacherId)
+              and (:lastName is null and c.name is null and c.id > :lastId
+                or :lastName is not null and (c.name is null or c.name > :lastName or (c.name = :lastName and c.id > :lastId)))
+            order by c.name nulls last, c.id
+            """)
+    List<CourseSummary> findCatalogPageAfter(
+            @Param("pattern") String pattern,
+            @Param("teacherId") Integer teacherId,
+            @Param("lastName") String lastName,
+            @Param("lastId") Integer lastId,
+            Pageable pageable
+    );
+
+    @Query("""
+            select new com.mchis.course.CourseSummary(
+                c.id, c.name, c.description, t.id, concat(t.firstname, ' ', t.lastname), c.capacity,
+                c.studentCount, c.assistantCount, c.sectionCount, c.partCount, c.assignmentCount)
+            from Course c join c.teacher t
+            where c.id = :id
+            """)
+    Optional<CourseSummary> findSummaryById(@Param("id") Integer id);
+
+    @Query("""
+            select new com.mchis.course.CourseSummary(
+                c.id, c.name, c.description, t.id, concat(t.firstname, ' ', t.lastname), c.capacity,
+                c.studentCount, c.assistantCount, c.sectionCount, c.partCount, c.assignmentCount)
+            from User u join u.learningCourses c join c.teacher t
+            where u.id = :userId
+            order by c.id
+            """)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "256"))
+    Stream<CourseSummary> streamLearningCourses(@Param("userId") Integer userId);
+
+    @Query("""
+            select new com.mchis.course.CourseSummary(
+                c.id, c.name, c.description, t.id, concat(t.firstname, ' ', t.lastname), c.capacity,
+                c.studentCount, c.assistantCount, c.sectionCount, c.partCount, c.assignmentCount)
+            from Course c join c.teacher t
+            where t.id = :userId
+            order by c.id
+            """)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "256"))
+    Stream<CourseSummary> streamTeachingCourses(@Param("userId") Integer userId);
+
+    @Query("""
+            select new com.mchis.course.CourseSummary(
+                c.id, c.name, c.description, t.id, concat(t.firstname, ' ', t.lastname), c.capacity,
+                c.studentCount, c.assistantCount, c.sectionCount, c.partCount, c.assignmentCount)
+            from User u join u.assistingCourses c join c.teacher t
+            where u.id = :userId
+            order by c.id
+            """)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "256"))
+    Stream<CourseSummary> streamAssistingCourses(@Param("userId") Integer userId);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            update Course c set
+                c.sectionCount = c.sectionCount + :sections,
+                c.partCount = c.partCount + :parts,
+                c.assignmentCount = c.assignmentCount + :assignments
+            where c.id = :id
+            """)
+    void adjustContentCounts(
+            @Param("id") Integer id,
+            @Param("sections") int sections,
+            @Param("parts") int parts,
+            @Param("assignments") int assignments
+    );
+
+    @Modifying
+    @Transactional
+    @Query("update Course c set c.assistantCount = c.assistantCount + :delta where c.id = :id")
+    void adjustAssistantCount(@Param("id") Integer id, @Param("delta") int delta);
+
+    @Query("select c.capacity from Course c where c.id = :id")
+    Integer findCapacityById(@Param("id") Integer id);
+
+    @Query("""
+            select u.id from User u join u.learningCourses c where c.id = :courseId
+            union
+            select u.id from User u join u.assistingCourses c where c.id = :courseId
+            """)
+    List<Integer> findMemberIds(@Param("courseId") Integer courseId);
+
+    @Query("select new com.mchis.course.CourseMember(c.id, t.id) from Course c join c.teacher t")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "4096"))
+    Stream<CourseMember> streamTeachers();
+
+    @Query("select new com.mchis.course.CourseMember(c.id, u.id) from User u join u.assistingCourses c")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "4096"))
+    Stream<CourseMember> streamAssistants();
+
+    @Query("select new com.mchis.course.CourseMember(c.id, u.id) from User u join u.learningCourses c")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "4096"))
+    Stream<CourseMember> streamStudents();
 }
@@ -2,6 +2,7 @@ package com.mchis.course;
 
 public record CourseRequest(
         String name,
-        String description
+        String description,
+        Integer capacity
 ) {
 }
@@ -1,15 +1,21 @@
 package com.mchis.course;
 
 import com.mchis.assignment.*;
+import com.mchis.enrollment.EnrollmentService;
 import com.mchis.exception.OperationNotPermittedException;
 import com.mchis.file.FileRepository;
 import com.mchis.file.FileRequest;
 import com.mchis.file.FileStorageService;
 import com.mchis.file.FileUpload;
-import com.mchis.part.Part;
+import com.mchis.file.StoredFile;
+import com.mchis.grading.GradeRepository;
+import com.mchis.grading.GradeStatisticsService;
 import com.mchis.section.Section;
+import com.mchis.section.SectionOutline;
 import com.mchis.section.SectionRepository;
 import com.mchis.section.SectionRequest;
+import com.mchis.submission.SimilarityService;
+import com.mchis.submission.SubmissionRepository;
 import com.mchis.text.Text;
 import com.mchis.text.TextRepository;
 import com.mchis.text.TextRequest;
@@ -17,15 +23,22 @@ import com.mchis.user.User;
 import com.mchis.user.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Service
@@ -39,12 +52,45 @@ public class CourseService {
     private final FileRepository fileRepository;
     private final AssignmentRepository assignmentRepository;
     private final AssignmentGradeRepository assignmentGradeRepository;
-
-    public List<Course> getAllCourses() {
-        return courseRepository.findAll();
+    private final GradeRepository gradeRepository;
+    private final JsonArrayWriter jsonArrayWriter;
+    private final CourseCache courseCache;
+    private final CourseMembershipIndex membershipIndex;
+    private final EnrollmentService enrollmentService;
+    private final GradeStatisticsService gradeStatisticsService;
+    private final AssignmentScheduler assignmentScheduler;
+    private final SubmissionRepository submissionRepository;
+    private final SimilarityService similarityService;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    public CoursePage getCatalog(
+            String name,
+            Integer teacherId,
+            String cursor,
+            Integer size
+    ) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        String pattern = toLikePattern(name);
+        // one extra row tells us whether there is a next page without a count query
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<CourseSummary> courses;
+        if (cursor == null || cursor.isBlank()) {
+            courses = courseRepository.findCatalogFirstPage(pattern, teacherId, limit);
+        } else {
+            CourseCursor after = CourseCursor.decode(cursor);
+            courses = courseRepository.findCatalogPageAfter(pattern, teacherId, after.name(), after.id(), limit);
+        }
+        if (courses.size() <= pageSize) {
+            return new CoursePage(courses, null);
+        }
+        List<CourseSummary> page = courses.subList(0, pageSize);
+        return new CoursePage(page, CourseCursor.of(page.get(pageSize - 1)).encode());
     }
 
-    public Course addCourse(
+    @Transactional
+    public CourseSummary addCourse(
             CourseRequest request,
             Authentication authentication
     ) {
@@ -52,81 +98,90 @@ public class CourseService {
         Course course = Course.builder()
                 .name(request.name())
                 .description(request.description())
+                .capacity(request.capacity())
                 .students(new ArrayList<>())
                 .assistants(new ArrayList<>())
                 .sections(new ArrayList<>())
                 .teacher(user)
                 .build();
-        List<Course> courses = user.getTeachingCourses();
-        courses.add(course);
-        user.setTeachingCourses(courses);
-        userRepository.save(user);
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        membershipIndex.addCourse(saved.getId(), user.getId());
+        return CourseSummary.of(saved);
     }
 
-    public Course editTeachingCourse(
+    @Transactional
+    public CourseSummary editTeachingCourse(
             Integer courseId,
             CourseRequest request,
             Authentication authentication
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d does not exist", courseId)));
+        Course course = loadCourse(courseId);
         course.setName(request.name());
         course.setDescription(request.description());
-        return courseRepository.save(course);
+        if (!Objects.equals(course.getCapacity(), request.capacity())) {
+            course.setCapacity(request.capacity());
+            enrollmentService.capacityChanged(courseId);
+        }
+        courseCache.evict(courseId);
+        return CourseSummary.of(course);
     }
 
+    @Transactional
     public void deleteTeachingCourse(
             Integer courseId,
             Authentication authentication) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d does not exist", courseId)));
+        Course course = loadCourse(courseId);
+        List<Integer> memberIds = courseRepository.findMemberIds(courseId);
+        List<Integer> assignmentIds = assignmentRepository.findIdsByCourseId(courseId);
+        fileStorageService.deleteCourseFiles(courseId);
+        submissionRepository.deleteByCourseId(courseId);
+        enrollmentService.courseDeleted(courseId);
         courseRepository.delete(course);
+        membershipIndex.removeCourse(courseId, course.getTeacher().getId(), memberIds);
+        assignmentsDeleted(assignmentIds);
+        courseCache.evict(courseId);
     }
 
-    public Course getCourseById(Integer id) {
-        return courseRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Course with course id " + id + " not found"));
+    public CourseDetail getCourseById(Integer id) {
+        return courseCache.getDetail(id, this::loadCourseDetail);
     }
 
-    public List<Course> getAllMyCourses(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
-        return user.getLearningCourses();
+    public CourseOutline getCourseOutline(Integer id) {
+        return courseCache.getOutline(id, this::loadCourseOutline);
+    }
+
+    public Map<String, CourseCacheStats> getCacheStats() {
+        return courseCache.stats();
     }
 
-    public List<Course> getAllTeachingCourses(Authentication authentication) {
+    @Transactional(readOnly = true)
+    public void writeAllMyCourses(Authentication authentication, OutputStream outputStream) throws IOException {
         User user = (User) authentication.getPrincipal();
-        return user.getTeachingCourses();
+        try (Stream<CourseSummary> courses = courseRepository.streamLearningCourses(user.getId())) {
+            jsonArrayWriter.write(courses, outputStream);
+        }
     }
 
-    public List<Course> getAllAssistingCourses(Authentication authentication) {
+    @Transactional(readOnly = true)
+    public void writeAllTeachingCourses(Authentication authentication, OutputStream outputStream) throws IOException {
         User user = (User) authentication.getPrincipal();
-        return user.getAssistingCourses();
+        try (Stream<CourseSummary> courses = courseRepository.streamTeachingCourses(user.getId())) {
+            jsonArrayWriter.write(courses, outputStream);
+        }
     }
 
-    public Course registerCourse(
-            Integer id,
-            Authentication authentication
-    ) throws OperationNotPermittedException {
+    @Transactional(readOnly = true)
+    public void writeAllAssistingCourses(Authentication authentication, OutputStream outputStream) throws IOException {
         User user = (User) authentication.getPrincipal();
-        Course course = courseRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d does not exist", id)));
-        if (Objects.equals(user, course.getTeacher())) {
-            throw new OperationNotPermittedException(String.format("User %s is the teacher of course %s and therefore cannot register this course",
-                    user.getFullName(), course.getName()));
+        try (Stream<CourseSummary> courses = courseRepository.streamAssistingCourses(user.getId())) {
+            jsonArrayWriter.write(courses, outputStream);
         }
-        List<User> students = course.getStudents();
-        List<Course> courses = user.getLearningCourses();
-        courses.add(course);
-        user.setLearningCourses(courses);
-        students.add(user);
-        userRepository.save(user);
-        return courseRepository.save(course);
     }
 
-    public Course addAssistant(
+    @Transactional
+    public CourseSummary addAssistant(
             String email,
             Integer courseId,
             Authentication authentication
@@ -134,17 +189,19 @@ public class CourseService {
         checkTeacher(authentication, courseId);
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new EntityNotFoundException(String.format("User with email %s not found", email)));
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d does not exist", courseId)));
-        List<User> assistants = course.getAssistants();
-        List<Course> courses = user.getAssistingCourses();
-        courses.add(course);
-        user.setLearningCourses(courses);
-        assistants.add(user);
-        userRepository.save(user);
-        return courseRepository.save(course);
+        Course course = loadCourse(courseId);
+        if (!membershipIndex.isAssistant(courseId, user.getId())) {
+            user.getAssistingCourses().add(course);
+            // relative update in the database, a read-modify-write of the entity loses concurrent additions
+            courseRepository.adjustAssistantCount(courseId, 1);
+            membershipIndex.addAssistant(courseId, user.getId());
+            courseCache.evict(courseId);
+        }
+        return courseRepository.findSummaryById(courseId)
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
     }
 
+    @Transactional
     public void addSection(
             Integer courseId,
             SectionRequest request,
@@ -152,20 +209,18 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d does not exist", courseId)));
-        List<Section> sections = course.getSections();
+        // existence was checked by the membership index, a reference is enough for the foreign key
         Section section = Section.builder()
                 .name(request.name())
-                .course(course)
+                .course(courseRepository.getReferenceById(courseId))
                 .parts(new ArrayList<>())
                 .build();
         sectionRepository.save(section);
-        sections.add(section);
-        course.setSections(sections);
-        courseRepository.save(course);
+        courseRepository.adjustContentCounts(courseId, 1, 0, 0);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void editSection(
             Integer courseId,
             Integer sectionId,
@@ -174,14 +229,12 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
+        Section section = loadSection(courseId, sectionId);
         section.setName(request.name());
-        sectionRepository.save(section);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void deleteSection(
             Integer courseId,
             Integer sectionId,
@@ -189,13 +242,19 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
+        Section section = loadSection(courseId, sectionId);
+        int parts = sectionRepository.countParts(sectionId);
+        int assignments = sectionRepository.countAssignments(sectionId);
+        List<Integer> assignmentIds = assignmentRepository.findIdsBySectionId(sectionId);
+        fileStorageService.deleteSectionFiles(sectionId);
+        submissionRepository.deleteBySectionId(sectionId);
         sectionRepository.delete(section);
+        courseRepository.adjustContentCounts(courseId, -1, -parts, -assignments);
+        assignmentsDeleted(assignmentIds);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void addPartText(
             Integer courseId,
             Integer sectionId,
@@ -204,20 +263,18 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-
+        Section section = loadSection(courseId, sectionId);
         Text part = Text.builder()
                 .title(request.title())
                 .text(request.text())
                 .section(section)
                 .build();
         textRepository.save(part);
-        addPartToSection(part, section);
+        courseRepository.adjustContentCounts(courseId, 0, 1, 0);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void editPartText(
             Integer courseId,
             Integer sectionId,
@@ -227,17 +284,14 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        Text part = textRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
+        Text part = textRepository.findByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)
+                .orElseThrow(() -> partNotFound(courseId, sectionId, partId));
         part.setTitle(request.title());
         part.setText(request.text());
-        textRepository.save(part);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void deletePartText(
             Integer courseId,
             Integer sectionId,
@@ -246,15 +300,14 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        Text part = textRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
+        Text part = textRepository.findByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)
+                .orElseThrow(() -> partNotFound(courseId, sectionId, partId));
         textRepository.delete(part);
+        courseRepository.adjustContentCounts(courseId, 0, -1, 0);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void addPartFile(
             Integer courseId,
             Integer sectionId,
@@ -264,22 +317,32 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
+        Section section = loadSection(courseId, sectionId);
         String path = fileStorageService.saveFile(file, courseId);
-        FileUpload createdFile = FileUpload.builder()
-                .title(request.title())
-                .name(request.name())
-                .path(path)
-                .section(section)
-                .uploadTime(LocalDateTime.now())
-                .build();
-        fileRepository.save(createdFile);
-        addPartToSection(createdFile, section);
+        createPartFile(courseId, section, request, path);
     }
 
+    /**
+     * Creates a file part from a completed chunked upload, see {@link com.mchis.file.ChunkedUploadService}.
+     */
+    @Transactional
+    public void addPartFile(
+            Integer courseId,
+            Integer sectionId,
+            FileRequest request,
+            Path upload,
+            StoredFile hashed,
+            String fileName,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        checkTeacher(authentication, courseId);
+        checkAssistant(authentication, courseId);
+        Section section = loadSection(courseId, sectionId);
+        String path = fileStorageService.saveUpload(upload, hashed, fileName);
+        createPartFile(courseId, section, request, path);
+    }
+
+    @Transactional
     public void editPartFile(
             Integer courseId,
             Integer sectionId,
@@ -290,20 +353,17 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        FileUpload part = fileRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
+        FileUpload part = fileRepository.findByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)
+                .orElseThrow(() -> partNotFound(courseId, sectionId, partId));
         fileStorageService.deleteFile(part.getPath());
         String path = fileStorageService.saveFile(file, courseId);
         part.setTitle(request.title());
         part.setName(request.name());
         part.setPath(path);
-        fileRepository.save(part);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void deletePartFile(
             Integer courseId,
             Integer sectionId,
@@ -312,16 +372,15 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        FileUpload part = fileRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
+        FileUpload part = fileRepository.findByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)
+                .orElseThrow(() -> partNotFound(courseId, sectionId, partId));
         fileStorageService.deleteFile(part.getPath());
         fileRepository.delete(part);
+        courseRepository.adjustContentCounts(courseId, 0, -1, 0);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void addPartAssignment(
             Integer courseId,
             Integer sectionId,
@@ -331,10 +390,7 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
+        Section section = loadSection(courseId, sectionId);
         String path = fileStorageService.saveAssignment(file, courseId);
         Assignment createdFile = Assignment.builder()
                 .title(request.title())
@@ -345,13 +401,17 @@ public class CourseService {
                 .uploadedTime(LocalDateTime.now())
                 .uploadedStatus(false)
                 .gradedStatus(false)
+                .state(AssignmentState.at(request.startTime(), request.endTime(), LocalDateTime.now()))
                 .section(section)
                 .grades(new ArrayList<>())
                 .build();
         assignmentRepository.save(createdFile);
-        addPartToSection(createdFile, section);
+        assignmentScheduler.schedule(createdFile.getId(), createdFile.getStartTime(), createdFile.getEndTime());
+        courseRepository.adjustContentCounts(courseId, 0, 1, 1);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void editPartAssignment(
             Integer courseId,
             Integer sectionId,
@@ -362,12 +422,7 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        Assignment part = assignmentRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
+        Assignment part = loadAssignment(courseId, sectionId, partId);
         fileStorageService.deleteFile(part.getPath());
         String path = fileStorageService.saveAssignment(file, courseId);
         part.setTitle(request.title());
@@ -376,9 +431,12 @@ public class CourseService {
         part.setStartTime(request.startTime());
         part.setEndTime(request.endTime());
         part.setUploadedTime(LocalDateTime.now());
-        assignmentRepository.save(part);
+        part.setState(AssignmentState.at(request.startTime(), request.endTime(), LocalDateTime.now()));
+        assignmentScheduler.schedule(partId, request.startTime(), request.endTime());
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void deletePartAssignment(
             Integer courseId,
             Integer sectionId,
@@ -387,16 +445,19 @@ public class CourseService {
     ) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        Assignment part = assignmentRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
+        Assignment part = loadAssignment(courseId, sectionId, partId);
         fileStorageService.deleteFile(part.getPath());
+        fileStorageService.deleteSubmissionFiles(partId);
+        submissionRepository.deleteByAssignmentId(partId);
         assignmentRepository.delete(part);
+        courseRepository.adjustContentCounts(courseId, 0, -1, -1);
+        gradeStatisticsService.assignmentDeleted(partId);
+        similarityService.assignmentDeleted(partId);
+        assignmentScheduler.cancel(partId);
+        courseCache.evict(courseId);
     }
 
+    @Transactional
     public void gradeAssignment(
             Integer courseId,
             Integer sectionId,
@@ -405,30 +466,17 @@ public class CourseService {
             Authentication authentication) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        Assignment part = assignmentRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
-        User student = userRepository.findById(request.studentId())
-                .orElseThrow(() -> new EntityNotFoundException(String.format("User with id %d not found", request.studentId())));
-        List<AssignmentGrade> studentGrades = student.getGrades();
-        List<AssignmentGrade> assignmentGrades = part.getGrades();
-        AssignmentGrade grade = AssignmentGrade.builder()
-                .grade(request.grade())
-                .student(student)
-                .assignment(part)
-                .build();
-        assignmentGradeRepository.save(grade);
-        studentGrades.add(grade);
-        assignmentGrades.add(grade);
-        student.setGrades(studentGrades);
-        part.setGrades(assignmentGrades);
-        userRepository.save(student);
-        assignmentRepository.save(part);
+        loadAssignment(courseId, sectionId, partId);
+        if (!userRepository.existsById(request.studentId())) {
+            throw new EntityNotFoundException(String.format("User with id %d not found", request.studentId()));
+        }
+        // grading a student again replaces the grade, through the same upsert as bulk grading
+        Float previous = gradeRepository.findGrades(partId, List.of(request.studentId())).get(request.studentId());
+        gradeRepository.upsertAll(partId, List.of(request));
+        gradeStatisticsService.gradeChanged(partId, previous, request.grade());
     }
 
+    @Transactional
     public void editAssignmentGrade(
             Integer courseId,
             Integer sectionId,
@@ -437,20 +485,13 @@ public class CourseService {
             Authentication authentication) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        Assignment part = assignmentRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
-        User student = userRepository.findById(request.studentId())
-                .orElseThrow(() -> new EntityNotFoundException(String.format("User with id %d not found", request.studentId())));
-        AssignmentGrade grade = assignmentGradeRepository.findByStudentAndAssignment(student, part)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Assignment for course %s of student %s not found", course.getName(), student.getName())));
+        loadAssignment(courseId, sectionId, partId);
+        AssignmentGrade grade = loadGrade(courseId, partId, request.studentId());
+        gradeStatisticsService.gradeChanged(partId, grade.getGrade(), request.grade());
         grade.setGrade(request.grade());
-        assignmentGradeRepository.save(grade);
     }
 
+    @Transactional
     public void deleteAssignmentGrade(
             Integer courseId,
             Integer sectionId,
@@ -459,49 +500,88 @@ public class CourseService {
             Authentication authentication) throws OperationNotPermittedException {
         checkTeacher(authentication, courseId);
         checkAssistant(authentication, courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
-        Section section = sectionRepository.findById(sectionId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %s with id %d not found", course.getName(), sectionId)));
-        Assignment part = assignmentRepository.findById(partId)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %s in course %s not found", partId, section.getName(), course.getName())));
-        User student = userRepository.findById(request.studentId())
-                .orElseThrow(() -> new EntityNotFoundException(String.format("User with id %d not found", request.studentId())));
-        AssignmentGrade grade = assignmentGradeRepository.findByStudentAndAssignment(student, part)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Assignment for course %s of student %s not found", course.getName(), student.getName())));
+        loadAssignment(courseId, sectionId, partId);
+        AssignmentGrade grade = loadGrade(courseId, partId, request.studentId());
         assignmentGradeRepository.delete(grade);
+        gradeStatisticsService.gradeChanged(partId, grade.getGrade(), null);
     }
 
-    private void checkAssistant(Authentication authentication, Integer courseId) throws OperationNotPermittedException {
-        User assistant = (User) authentication.getPrincipal();
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException("Course with course id " + courseId + " not found"));
-        boolean notAssistant = true;
-        for (User a : course.getAssistants()) {
-            if (Objects.equals(a.getId(), assistant.getId())) {
-                notAssistant = false;
-                break;
-            }
-        }
-        if (notAssistant) {
-            throw new OperationNotPermittedException(String.format("User %s is not assistant of course %s not found", assistant.getName(), course.getName()));
+    private void createPartFile(Integer courseId, Section section, FileRequest request, String path) {
+        FileUpload createdFile = FileUpload.builder()
+                .title(request.title())
+                .name(request.name())
+                .path(path)
+                .section(section)
+                .uploadTime(LocalDateTime.now())
+                .build();
+        fileRepository.save(createdFile);
+        courseRepository.adjustContentCounts(courseId, 0, 1, 0);
+        courseCache.evict(courseId);
+    }
+
+    /**
+     * Drops the in-memory state of assignments removed together with their section or course.
+     */
+    private void assignmentsDeleted(List<Integer> assignmentIds) {
+        for (Integer assignmentId : assignmentIds) {
+            gradeStatisticsService.assignmentDeleted(assignmentId);
+            similarityService.assignmentDeleted(assignmentId);
+            assignmentScheduler.cancel(assignmentId);
         }
     }
 
+    private void checkAssistant(Authentication authentication, Integer courseId) throws OperationNotPermittedException {
+        membershipIndex.requireAssistant((User) authentication.getPrincipal(), courseId);
+    }
+
     private void checkTeacher(Authentication authentication, Integer courseId) throws OperationNotPermittedException {
-        User teacher = (User) authentication.getPrincipal();
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException("Course with course id " + courseId + " not found"));
-        if (!Objects.equals(teacher.getId(), course.getTeacher().getId())) {
-            throw new OperationNotPermittedException(String.format("User %s is not the teacher of course %s",
-                    teacher.getFullName(), course.getName()));
+        membershipIndex.requireTeacher((User) authentication.getPrincipal(), courseId);
+    }
+
+    private CourseDetail loadCourseDetail(Integer id) {
+        CourseSummary course = courseRepository.findSummaryById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Course with course id " + id + " not found"));
+        return CourseDetail.of(course, sectionRepository.findSummariesByCourseId(id));
+    }
+
+    private CourseOutline loadCourseOutline(Integer id) {
+        CourseSummary course = courseRepository.findSummaryById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Course with course id " + id + " not found"));
+        return CourseOutline.of(course, SectionOutline.fromRows(sectionRepository.findOutlineRowsByCourseId(id)));
+    }
+
+    private String toLikePattern(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
         }
+        String escaped = name.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
     }
 
-    private void addPartToSection(Part part, Section section) {
-        List<Part> parts = section.getParts();
-        parts.add(part);
-        section.setParts(parts);
-        sectionRepository.save(section);
+    private Course loadCourse(Integer courseId) {
+        return courseRepository.findById(courseId)
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Course with id %d not found", courseId)));
+    }
+
+    private Section loadSection(Integer courseId, Integer sectionId) {
+        return sectionRepository.findByIdAndCourseId(sectionId, courseId)
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Section in course %d with id %d not found", courseId, sectionId)));
+    }
+
+    private Assignment loadAssignment(Integer courseId, Integer sectionId, Integer partId) {
+        return assignmentRepository.findByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)
+                .orElseThrow(() -> partNotFound(courseId, sectionId, partId));
+    }
+
+    private AssignmentGrade loadGrade(Integer courseId, Integer partId, Integer studentId) {
+        return assignmentGradeRepository.findByStudentIdAndAssignmentId(studentId, partId)
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Assignment for course %d of student %d not found", courseId, studentId)));
+    }
+
+    private EntityNotFoundException partNotFound(Integer courseId, Integer sectionId, Integer partId) {
+        return new EntityNotFoundException(String.format("Part with id %d in section %d in course %d not found", partId, sectionId, courseId));
     }
 }
@@ -0,0 +1,31 @@
+package com.mchis.course;
+
+public record CourseSummary(
+        Integer id,
+        String name,
+        String description,
+        Integer teacherId,
+        String teacherName,
+        Integer capacity,
+        int studentCount,
+        int assistantCount,
+        int sectionCount,
+        int partCount,
+        int assignmentCount
+) {
+    static CourseSummary of(Course course) {
+        return new CourseSummary(
+                course.getId(),
+                course.getName(),
+                course.getDescription(),
+                course.getTeacher().getId(),
+                course.getTeacher().getFullName(),
+                course.getCapacity(),
+                course.getStudentCount(),
+                course.getAssistantCount(),
+                course.getSectionCount(),
+                course.getPartCount(),
+                course.getAssignmentCount()
+        );
+    }
+}
@@ -0,0 +1,12 @@
+package com.mchis.course;
+
+/**
+ * A catalog cursor that was not issued by {@link CourseCursor#encode()}, answered with 400 by {@link CourseController}.
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException(String msg) {
+        super(msg);
+    }
+}
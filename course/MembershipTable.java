@@ -0,0 +1,135 @@
+package com.mchis.course;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table from a packed (course id, user id) key to a byte of role flags.
+ * Not thread safe, callers guard it with a lock.
+ */
+final class MembershipTable {
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private byte[] flags;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    MembershipTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    static long key(int courseId, int userId) {
+        return ((long) courseId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte get(long key) {
+        int index = slot(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return flags[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    void add(long key, byte flag) {
+        int index = slot(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                flags[index] |= flag;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        flags[index] = flag;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    void remove(long key, byte flag) {
+        int index = slot(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                flags[index] &= (byte) ~flag;
+                if (flags[index] == 0) {
+                    delete(index);
+                }
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void delete(int index) {
+        // backward shift deletion keeps probe sequences intact without tombstones
+        int gap = index;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == EMPTY) {
+                break;
+            }
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                flags[gap] = flags[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        flags[gap] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        byte[] oldFlags = flags;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insertFresh(oldKeys[i], oldFlags[i]);
+            }
+        }
+    }
+
+    private void insertFresh(long key, byte flag) {
+        int index = slot(key);
+        while (keys[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        flags[index] = flag;
+        size++;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        flags = new byte[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,29 @@
+package com.mchis.course;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change to the student count of a course that is not folded into {@link Course} yet. Enrollments only append
+ * these, so registrations never queue on the course row, and {@link StudentCountFolder} applies them in the background.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        indexes = @Index(name = "idx_student_count_delta_course_id", columnList = "course_id")
+)
+public class StudentCountDelta {
+    // identity rather than a sequence, rows are only ever inserted by StudentCountRepository
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    // no foreign key, so deleting a course does not wait on its deltas, the fold drops those of deleted courses
+    private Integer courseId;
+    private int delta;
+}
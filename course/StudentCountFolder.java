@@ -0,0 +1,48 @@
+package com.mchis.course;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Folds the {@link StudentCountDelta}s appended by enrollments into {@link Course#getStudentCount()} in the
+ * background, so the course row is locked once per batch instead of once per registration. Counts lag the
+ * enrollments by at most one poll interval.
+ */
+@Component
+@Slf4j
+public class StudentCountFolder {
+    private final StudentCountRepository studentCountRepository;
+    private final CourseCache courseCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public StudentCountFolder(
+            StudentCountRepository studentCountRepository,
+            CourseCache courseCache,
+            PlatformTransactionManager transactionManager,
+            @Value("${application.course.counters.fold-batch-size:1000}") int batchSize
+    ) {
+        this.studentCountRepository = studentCountRepository;
+        this.courseCache = courseCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${application.course.counters.fold-interval-ms:1000}")
+    public void fold() {
+        List<Integer> courses;
+        do {
+            courses = transactionTemplate.execute(status -> studentCountRepository.fold(batchSize));
+            if (courses == null) {
+                return;
+            }
+            courses.forEach(courseCache::evict);
+        } while (!courses.isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package com.mchis.course;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Appends and folds {@link StudentCountDelta}s. Appending is a plain insert, folding sums the deltas per course and
+ * adds them to {@code course.student_count} with one update per batch.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StudentCountRepository {
+    private static final String FOLD = """
+            with folded as (
+                delete from student_count_delta where id in
+                    (select id from student_count_delta order by id limit ? for update skip locked)
+                returning course_id, delta
+            ), sums as (
+                select course_id, sum(delta) as delta from folded group by course_id
+            )
+            update course c set student_count = c.student_count + s.delta
+            from sums s where c.id = s.course_id
+            returning c.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Appends a delta under a key share lock on the course row. Enrollments share that lock with each other and
+     * with the fold, only {@link CourseCounterRepairJob} excludes it while it recounts the course.
+     */
+    public void add(Integer courseId, int delta) {
+        jdbcTemplate.update("insert into student_count_delta (course_id, delta) select id, ? from course where id = ? for key share",
+                delta, courseId);
+    }
+
+    /**
+     * Folds up to limit pending deltas into their courses and returns the ids of the courses that changed.
+     * Deltas of deleted courses are dropped with the rest.
+     */
+    public List<Integer> fold(int limit) {
+        return jdbcTemplate.queryForList(FOLD, Integer.class, limit);
+    }
+
+    /**
+     * Drops the pending deltas of a range of courses whose counts are about to be recomputed.
+     */
+    public void discard(int fromId, int toId) {
+        jdbcTemplate.update("delete from student_count_delta where course_id >= ? and course_id < ?", fromId, toId);
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -65,4 +66,32 @@ public class EmailService {
 
         mailSender.send(mimeMessage);
     }
+
+    /**
+     * Sends synchronously, the caller streams its recipients and must not queue a mail per row.
+     */
+    public void sendAssignmentReminder(
+            String to,
+            String username,
+            String assignmentTitle,
+            LocalDateTime dueAt
+    ) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(
+                mimeMessage,
+                MULTIPART_MODE_MIXED,
+                UTF_8.name()
+        );
+        Context context = new Context();
+        context.setVariable("username", username);
+        context.setVariable("assignment", assignmentTitle);
+        context.setVariable("dueAt", dueAt);
+
+        helper.setFrom(from);
+        helper.setTo(to);
+        helper.setSubject(String.format("%s is due in 24 hours", assignmentTitle));
+        helper.setText(templateEngine.process(EmailTemplateName.ASSIGNMENT_REMINDER.getName(), context), true);
+
+        mailSender.send(mimeMessage);
+    }
 }
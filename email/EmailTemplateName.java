@@ -7,6 +7,7 @@ public enum EmailTemplateName {
 
     ACTIVATE_ACCOUNT("activate_account"),
     RESET_PASSWORD("reset_password"),
+    ASSIGNMENT_REMINDER("assignment_reminder"),
     ;
 
 
@@ -0,0 +1,12 @@
+package com.mchis.enrollment;
+
+import java.util.List;
+
+public record BulkEnrollmentReport(
+        int total,
+        int enrolled,
+        int alreadyEnrolled,
+        int rejected,
+        List<EnrollmentRowResult> rows
+) {
+}
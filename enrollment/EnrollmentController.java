@@ -0,0 +1,56 @@
+package com.mchis.enrollment;
+
+import com.mchis.exception.OperationNotPermittedException;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("courses")
+@Tag(name = "Enrollment")
+public class EnrollmentController {
+    private final EnrollmentService enrollmentService;
+
+    @PostMapping("/register")
+    public ResponseEntity<RegistrationResponse> registerCourse(
+            @RequestParam("course") Integer courseId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.ok(enrollmentService.register(courseId, authentication));
+    }
+
+    @DeleteMapping("/register")
+    public ResponseEntity<?> unregisterCourse(
+            @RequestParam("course") Integer courseId,
+            Authentication authentication
+    ) {
+        enrollmentService.unregister(courseId, authentication);
+        return ResponseEntity.accepted().build();
+    }
+
+    @PostMapping(value = "/teach/{course-id}/students", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<BulkEnrollmentReport> enrollStudents(
+            @PathVariable("course-id") Integer courseId,
+            HttpServletRequest request,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        return ResponseEntity.ok(enrollmentService.enrollAll(
+                courseId,
+                request.getInputStream(),
+                MediaType.parseMediaType(request.getContentType()),
+                authentication
+        ));
+    }
+}
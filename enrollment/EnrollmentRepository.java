@@ -0,0 +1,79 @@
+package com.mchis.enrollment;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the students_courses join table of {@code User.learningCourses} directly,
+ * without loading either side of the association.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EnrollmentRepository {
+    public static final String TABLE = "students_courses";
+    // the join table mapping on User names its columns the other way round:
+    // course_id holds the student, student_id holds the course
+    public static final String USER_COLUMN = "course_id";
+    public static final String COURSE_COLUMN = "student_id";
+
+    // relies on the uk_students_courses unique constraint declared on User.learningCourses
+    private static final String INSERT_IF_ABSENT = "insert into " + TABLE + " (" + USER_COLUMN + ", " + COURSE_COLUMN + ") "
+            + "values (?, ?) on conflict do nothing";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the single join row of the enrollment, returns false if the user was already enrolled.
+     */
+    public boolean enroll(Integer courseId, Integer userId) {
+        return jdbcTemplate.update(INSERT_IF_ABSENT, userId, courseId) > 0;
+    }
+
+    public boolean unenroll(Integer courseId, Integer userId) {
+        return jdbcTemplate.update("delete from " + TABLE + " where " + USER_COLUMN + " = ? and " + COURSE_COLUMN + " = ?",
+                userId, courseId) > 0;
+    }
+
+    public int countStudents(Integer courseId) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from " + TABLE + " where " + COURSE_COLUMN + " = ?",
+                Integer.class, courseId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Returns those of the given users that are enrolled in the course, in a single query.
+     */
+    public Set<Integer> findEnrolled(Integer courseId, Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select " + USER_COLUMN + " from " + TABLE + " where " + COURSE_COLUMN + " = ? and " + USER_COLUMN + " = any (?)",
+                Integer.class, courseId, new SqlArrayValue("integer", userIds.toArray())));
+    }
+
+    /**
+     * Enrolls the users in one statement and returns, per user, whether a row was inserted. The inserted users
+     * come back from the statement itself, since a JDBC batch may report its counts as SUCCESS_NO_INFO.
+     * A user listed twice counts as inserted only at its first position.
+     */
+    public boolean[] enrollAll(Integer courseId, List<Integer> userIds) {
+        Set<Integer> added = new HashSet<>(jdbcTemplate.queryForList(
+                "insert into " + TABLE + " (" + USER_COLUMN + ", " + COURSE_COLUMN + ") "
+                        + "select user_id, ? from unnest(?) as user_id "
+                        + "on conflict do nothing returning " + USER_COLUMN,
+                Integer.class, courseId, new SqlArrayValue("integer", userIds.toArray())));
+        boolean[] inserted = new boolean[userIds.size()];
+        for (int i = 0; i < inserted.length; i++) {
+            inserted[i] = added.remove(userIds.get(i));
+        }
+        return inserted;
+    }
+}
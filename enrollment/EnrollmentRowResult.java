@@ -0,0 +1,8 @@
+package com.mchis.enrollment;
+
+public record EnrollmentRowResult(
+        int row,
+        String user,
+        EnrollmentStatus status
+) {
+}
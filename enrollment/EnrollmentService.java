@@ -0,0 +1,412 @@
+package com.mchis.enrollment;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.course.CourseRepository;
+import com.mchis.course.StudentCountRepository;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.user.User;
+import com.mchis.user.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@Service
+@Slf4j
+public class EnrollmentService {
+    private static final int BATCH_SIZE = 500;
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final WaitlistRepository waitlistRepository;
+    private final UserRepository userRepository;
+    private final CourseRepository courseRepository;
+    private final CourseMembershipIndex membershipIndex;
+    private final StudentCountRepository studentCountRepository;
+    private final SeatAllocator seatAllocator;
+    private final JsonFactory jsonFactory;
+    private final TransactionTemplate transactionTemplate;
+
+    public EnrollmentService(
+            EnrollmentRepository enrollmentRepository,
+            WaitlistRepository waitlistRepository,
+            UserRepository userRepository,
+            CourseRepository courseRepository,
+            CourseMembershipIndex membershipIndex,
+            StudentCountRepository studentCountRepository,
+            SeatAllocator seatAllocator,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.userRepository = userRepository;
+        this.courseRepository = courseRepository;
+        this.membershipIndex = membershipIndex;
+        this.studentCountRepository = studentCountRepository;
+        this.seatAllocator = seatAllocator;
+        this.jsonFactory = objectMapper.getFactory();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Enrolls the user if the course has a free seat and puts them on the waitlist otherwise.
+     * Registering again is a no-op that reports the current status.
+     */
+    public RegistrationResponse register(
+            Integer courseId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        User user = (User) authentication.getPrincipal();
+        if (!membershipIndex.exists(courseId)) {
+            throw new EntityNotFoundException(String.format("Course with id %d does not exist", courseId));
+        }
+        if (membershipIndex.isTeacher(courseId, user.getId())) {
+            throw new OperationNotPermittedException(String.format("User %s is the teacher of course %d and therefore cannot register this course",
+                    user.getFullName(), courseId));
+        }
+        if (membershipIndex.isStudent(courseId, user.getId())) {
+            return new RegistrationResponse(courseId, EnrollmentStatus.ALREADY_ENROLLED, null);
+        }
+        if (!seatAllocator.tryAcquire(courseId)) {
+            return waitlist(courseId, user.getId());
+        }
+        boolean enrolled;
+        try {
+            // a retried or concurrent registration hits the unique constraint and inserts nothing
+            enrolled = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (!enrollmentRepository.enroll(courseId, user.getId())) {
+                    return false;
+                }
+                studentsChanged(courseId, 1);
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            seatAllocator.cancel(courseId);
+            throw e;
+        }
+        if (!enrolled) {
+            seatAllocator.cancel(courseId);
+            return new RegistrationResponse(courseId, EnrollmentStatus.ALREADY_ENROLLED, null);
+        }
+        seatAllocator.confirm(courseId);
+        membershipIndex.addStudent(courseId, user.getId());
+        return new RegistrationResponse(courseId, EnrollmentStatus.ENROLLED, null);
+    }
+
+    /**
+     * Removes the user from the course or its waitlist and hands a freed seat to the waitlist.
+     */
+    public void unregister(Integer courseId, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        boolean removed = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            waitlistRepository.deleteByCourseIdAndUserId(courseId, user.getId());
+            if (!enrollmentRepository.unenroll(courseId, user.getId())) {
+                return false;
+            }
+            studentsChanged(courseId, -1);
+            return true;
+        }));
+        if (removed) {
+            membershipIndex.removeStudent(courseId, user.getId());
+            seatAllocator.release(courseId);
+            promoteWaitlisted(courseId);
+        }
+    }
+
+    /**
+     * Removes the waitlist of a course that is being deleted, in the deleting transaction, and its seat counter
+     * once that transaction committed.
+     */
+    @Transactional
+    public void courseDeleted(Integer courseId) {
+        waitlistRepository.deleteByCourseId(courseId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seatAllocator.remove(courseId);
+                }
+            });
+        } else {
+            seatAllocator.remove(courseId);
+        }
+    }
+
+    /**
+     * Moves waitlisted students into the course, oldest first, while seats are free.
+     */
+    public void promoteWaitlisted(Integer courseId) {
+        while (seatAllocator.tryAcquire(courseId)) {
+            EnrollmentStatus status;
+            try {
+                status = transactionTemplate.execute(transaction -> {
+                    WaitlistEntry next = waitlistRepository.lockNext(courseId).orElse(null);
+                    if (next == null) {
+                        return null;
+                    }
+                    Integer userId = next.getUser().getId();
+                    waitlistRepository.delete(next);
+                    if (!enrollmentRepository.enroll(courseId, userId)) {
+                        return EnrollmentStatus.ALREADY_ENROLLED;
+                    }
+                    membershipIndex.addStudent(courseId, userId);
+                    studentsChanged(courseId, 1);
+                    return EnrollmentStatus.ENROLLED;
+                });
+            } catch (RuntimeException e) {
+                seatAllocator.cancel(courseId);
+                throw e;
+            }
+            if (status == null) {
+                seatAllocator.cancel(courseId);
+                return;
+            }
+            if (status == EnrollmentStatus.ALREADY_ENROLLED) {
+                seatAllocator.cancel(courseId);
+            } else {
+                seatAllocator.confirm(courseId);
+            }
+        }
+    }
+
+    /**
+     * Re-reads seat counts and promotes waitlisted students after the surrounding transaction commits,
+     * used when the capacity of a course changes.
+     */
+    public void capacityChanged(Integer courseId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seatAllocator.invalidate(courseId);
+                    promoteWaitlisted(courseId);
+                }
+            });
+        } else {
+            seatAllocator.invalidate(courseId);
+            promoteWaitlisted(courseId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.enrollment.seat-reconcile-interval-ms:30000}")
+    public void reconcileSeats() {
+        for (Integer courseId : seatAllocator.reconcile()) {
+            promoteWaitlisted(courseId);
+        }
+    }
+
+    /**
+     * Enrolls a roster of user ids or emails, given as CSV (first column) or as a JSON array,
+     * reading and writing it in batches so the roster is never held in memory as a whole.
+     */
+    public BulkEnrollmentReport enrollAll(
+            Integer courseId,
+            InputStream roster,
+            MediaType contentType,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        membershipIndex.requireTeacher((User) authentication.getPrincipal(), courseId);
+        RosterBatch batch = new RosterBatch(courseId);
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            readJson(roster, batch);
+        } else {
+            readCsv(roster, batch);
+        }
+        batch.flush();
+        // imported students bypass the seat counters, reload them from the database
+        seatAllocator.invalidate(courseId);
+        return batch.report();
+    }
+
+    /**
+     * Records the change to the denormalized student count in the enrolling transaction. It is only appended here,
+     * {@link com.mchis.course.StudentCountFolder} adds it to the course row later, so enrollments never wait on that row lock.
+     */
+    private void studentsChanged(Integer courseId, int delta) {
+        studentCountRepository.add(courseId, delta);
+    }
+
+    private RegistrationResponse waitlist(Integer courseId, Integer userId) {
+        WaitlistEntry entry;
+        try {
+            entry = transactionTemplate.execute(status -> waitlistRepository.findByCourseIdAndUserId(courseId, userId)
+                    .orElseGet(() -> waitlistRepository.saveAndFlush(WaitlistEntry.builder()
+                            .course(courseRepository.getReferenceById(courseId))
+                            .user(userRepository.getReferenceById(userId))
+                            .createdAt(LocalDateTime.now())
+                            .build())));
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request of the same user created the entry first
+            entry = waitlistRepository.findByCourseIdAndUserId(courseId, userId).orElseThrow(() -> e);
+        }
+        long position = waitlistRepository.positionOf(courseId, entry.getCreatedAt(), entry.getId());
+        return new RegistrationResponse(courseId, EnrollmentStatus.WAITLISTED, position);
+    }
+
+    private void readCsv(InputStream roster, RosterBatch batch) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(roster, UTF_8));
+        String line;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            String value = line.split(",", 2)[0].trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            // a leading line that is neither an id nor an email is a header
+            if (first && parseId(value) == null && !value.contains("@")) {
+                first = false;
+                continue;
+            }
+            first = false;
+            batch.add(value);
+        }
+    }
+
+    private void readJson(InputStream roster, RosterBatch batch) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(roster)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Roster must be a JSON array");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    JsonNode node = parser.readValueAsTree();
+                    JsonNode value = node.has("email") ? node.get("email") : node.get("id");
+                    batch.add(value == null ? "" : value.asText());
+                } else {
+                    batch.add(parser.getText());
+                }
+            }
+        }
+    }
+
+    private static Integer parseId(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private class RosterBatch {
+        private final Integer courseId;
+        private final List<String> pending = new ArrayList<>(BATCH_SIZE);
+        private final List<EnrollmentRowResult> rows = new ArrayList<>();
+        private int enrolled;
+        private int alreadyEnrolled;
+        private int rejected;
+
+        private RosterBatch(Integer courseId) {
+            this.courseId = courseId;
+        }
+
+        void add(String value) {
+            pending.add(value.trim());
+            if (pending.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            int firstRow = rows.size() + 1;
+            Map<String, Integer> byEmail = new HashMap<>();
+            Map<Integer, Integer> byId = new HashMap<>();
+            List<String> emails = new ArrayList<>();
+            List<Integer> ids = new ArrayList<>();
+            for (String value : pending) {
+                Integer id = parseId(value);
+                if (id != null) {
+                    ids.add(id);
+                } else if (value.contains("@")) {
+                    emails.add(value);
+                }
+            }
+            if (!emails.isEmpty()) {
+                userRepository.findKeysByEmailIn(emails).forEach(u -> byEmail.put(u.email(), u.id()));
+            }
+            if (!ids.isEmpty()) {
+                userRepository.findKeysByIdIn(ids).forEach(u -> byId.put(u.id(), u.id()));
+            }
+
+            EnrollmentStatus[] statuses = new EnrollmentStatus[pending.size()];
+            List<Integer> toEnroll = new ArrayList<>();
+            List<Integer> toEnrollRows = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                String value = pending.get(i);
+                Integer parsedId = parseId(value);
+                Integer userId = parsedId != null ? byId.get(parsedId) : byEmail.get(value);
+                if (parsedId == null && !value.contains("@")) {
+                    statuses[i] = EnrollmentStatus.INVALID;
+                } else if (userId == null) {
+                    statuses[i] = EnrollmentStatus.NOT_FOUND;
+                } else if (membershipIndex.isTeacher(courseId, userId)) {
+                    statuses[i] = EnrollmentStatus.TEACHER;
+                } else {
+                    toEnroll.add(userId);
+                    toEnrollRows.add(i);
+                }
+            }
+            if (!toEnroll.isEmpty()) {
+                boolean[] inserted = transactionTemplate.execute(status -> {
+                    boolean[] result = enrollmentRepository.enrollAll(courseId, toEnroll);
+                    int added = 0;
+                    for (int i = 0; i < result.length; i++) {
+                        if (result[i]) {
+                            membershipIndex.addStudent(courseId, toEnroll.get(i));
+                            added++;
+                        }
+                    }
+                    if (added > 0) {
+                        studentsChanged(courseId, added);
+                    }
+                    return result;
+                });
+                for (int i = 0; i < inserted.length; i++) {
+                    statuses[toEnrollRows.get(i)] = inserted[i] ? EnrollmentStatus.ENROLLED : EnrollmentStatus.ALREADY_ENROLLED;
+                }
+            }
+            for (int i = 0; i < statuses.length; i++) {
+                switch (statuses[i]) {
+                    case ENROLLED -> enrolled++;
+                    case ALREADY_ENROLLED -> alreadyEnrolled++;
+                    default -> rejected++;
+                }
+                rows.add(new EnrollmentRowResult(firstRow + i, pending.get(i), statuses[i]));
+            }
+            log.info(String.format("Enrolled %d of %d users into course %d", toEnroll.size(), pending.size(), courseId));
+            pending.clear();
+        }
+
+        BulkEnrollmentReport report() {
+            return new BulkEnrollmentReport(rows.size(), enrolled, alreadyEnrolled, rejected, List.copyOf(rows));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.mchis.enrollment;
+
+public enum EnrollmentStatus {
+    ENROLLED,
+    ALREADY_ENROLLED,
+    WAITLISTED,
+    NOT_FOUND,
+    TEACHER,
+    INVALID
+}
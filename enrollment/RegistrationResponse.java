@@ -0,0 +1,8 @@
+package com.mchis.enrollment;
+
+public record RegistrationResponse(
+        Integer courseId,
+        EnrollmentStatus status,
+        Long waitlistPosition
+) {
+}
@@ -0,0 +1,158 @@
+package com.mchis.enrollment;
+
+import com.mchis.course.CourseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out course seats from in-memory counters, one per course, so concurrent
+ * registrations compete on a compare-and-set instead of a row lock. Counters are
+ * loaded from the database on first use and periodically reconciled with it.
+ * <p>
+ * A seat is pending from {@link #tryAcquire} until the caller {@link #confirm confirms} it after the
+ * enrollment committed or {@link #cancel cancels} it. Reconciling never touches a counter while
+ * seats are pending, those are not in the database yet.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SeatAllocator {
+    private final CourseRepository courseRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final ConcurrentMap<Integer, Seats> seats = new ConcurrentHashMap<>();
+
+    private static final class Seats {
+        private volatile Integer capacity;
+        // committed and pending seats, counted for unlimited courses too so a capacity can be set later
+        private final AtomicInteger taken;
+        private final AtomicInteger pending = new AtomicInteger();
+        // bumped by every change, reconcile only writes if nothing changed while it counted
+        private final AtomicLong version = new AtomicLong();
+
+        private Seats(Integer capacity, int taken) {
+            this.capacity = capacity;
+            this.taken = new AtomicInteger(taken);
+        }
+    }
+
+    /**
+     * Reserves a seat, always succeeds for courses without capacity. A successful call must be
+     * followed by {@link #confirm} or {@link #cancel}.
+     */
+    public boolean tryAcquire(Integer courseId) {
+        Seats courseSeats = seats.computeIfAbsent(courseId, this::load);
+        courseSeats.pending.incrementAndGet();
+        courseSeats.version.incrementAndGet();
+        int current;
+        do {
+            current = courseSeats.taken.get();
+            Integer capacity = courseSeats.capacity;
+            if (capacity != null && current >= capacity) {
+                courseSeats.pending.decrementAndGet();
+                return false;
+            }
+        } while (!courseSeats.taken.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Marks an acquired seat as committed to the database.
+     */
+    public void confirm(Integer courseId) {
+        Seats courseSeats = seats.get(courseId);
+        if (courseSeats != null) {
+            courseSeats.version.incrementAndGet();
+            courseSeats.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gives back an acquired seat whose enrollment did not happen.
+     */
+    public void cancel(Integer courseId) {
+        Seats courseSeats = seats.get(courseId);
+        if (courseSeats != null) {
+            courseSeats.version.incrementAndGet();
+            courseSeats.taken.updateAndGet(taken -> Math.max(0, taken - 1));
+            courseSeats.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Frees the seat of a committed enrollment that was removed.
+     */
+    public void release(Integer courseId) {
+        Seats courseSeats = seats.get(courseId);
+        if (courseSeats != null) {
+            courseSeats.version.incrementAndGet();
+            courseSeats.taken.updateAndGet(taken -> Math.max(0, taken - 1));
+        }
+    }
+
+    /**
+     * Re-reads the capacity and the enrollment count of the course, e.g. after its capacity changed or
+     * students were imported. The count is left to the next {@link #reconcile} while seats are pending.
+     */
+    public void invalidate(Integer courseId) {
+        Seats courseSeats = seats.get(courseId);
+        if (courseSeats != null) {
+            courseSeats.capacity = courseRepository.findCapacityById(courseId);
+            sync(courseId, courseSeats);
+        }
+    }
+
+    /**
+     * Forgets the counter of a deleted course. A registration racing the delete loads it again without a capacity,
+     * so it never shows up as having free seats.
+     */
+    public void remove(Integer courseId) {
+        seats.remove(courseId);
+    }
+
+    /**
+     * Brings the counters of limited courses in line with the enrollment count in the database
+     * and returns the courses that have free seats afterwards.
+     */
+    public List<Integer> reconcile() {
+        List<Integer> withFreeSeats = new ArrayList<>();
+        seats.forEach((courseId, courseSeats) -> {
+            Integer capacity = courseSeats.capacity;
+            if (capacity != null) {
+                sync(courseId, courseSeats);
+                if (courseSeats.taken.get() < capacity) {
+                    withFreeSeats.add(courseId);
+                }
+            }
+        });
+        return withFreeSeats;
+    }
+
+    /**
+     * Sets the counter to the database count, unless a seat was pending or any change happened
+     * while counting, in which case the count may already be stale and the next run retries.
+     */
+    private void sync(Integer courseId, Seats courseSeats) {
+        long version = courseSeats.version.get();
+        if (courseSeats.pending.get() != 0) {
+            return;
+        }
+        int previous = courseSeats.taken.get();
+        int enrolled = enrollmentRepository.countStudents(courseId);
+        if (courseSeats.version.get() == version && previous != enrolled
+                && courseSeats.taken.compareAndSet(previous, enrolled)) {
+            log.info(String.format("Reconciled seats of course %d from %d to %d", courseId, previous, enrolled));
+        }
+    }
+
+    private Seats load(Integer courseId) {
+        return new Seats(courseRepository.findCapacityById(courseId), enrollmentRepository.countStudents(courseId));
+    }
+}
@@ -0,0 +1,33 @@
+package com.mchis.enrollment;
+
+import com.mchis.course.Course;
+import com.mchis.user.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_entry_course_user", columnNames = {"course_id", "user_id"}),
+        indexes = @Index(name = "idx_waitlist_entry_course_created", columnList = "course_id, created_at, id")
+)
+public class WaitlistEntry {
+    @Id
+    @GeneratedValue
+    private Integer id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "course_id")
+    private Course course;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+    private LocalDateTime createdAt;
+}
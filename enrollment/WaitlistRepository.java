@@ -0,0 +1,44 @@
+package com.mchis.enrollment;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Integer> {
+    Optional<WaitlistEntry> findByCourseIdAndUserId(Integer courseId, Integer userId);
+
+    @Query("""
+            select count(w) from WaitlistEntry w
+            where w.course.id = :courseId
+              and (w.createdAt < :createdAt or (w.createdAt = :createdAt and w.id <= :id))
+            """)
+    long positionOf(
+            @Param("courseId") Integer courseId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Integer id
+    );
+
+    /**
+     * Locks the oldest entry of the course, entries locked by a concurrent promotion are skipped.
+     */
+    @Query(value = """
+            select * from waitlist_entry
+            where course_id = :courseId
+            order by created_at, id
+            limit 1
+            for update skip locked
+            """, nativeQuery = true)
+    Optional<WaitlistEntry> lockNext(@Param("courseId") Integer courseId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.course.id = :courseId and w.user.id = :userId")
+    int deleteByCourseIdAndUserId(@Param("courseId") Integer courseId, @Param("userId") Integer userId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.course.id = :courseId")
+    int deleteByCourseId(@Param("courseId") Integer courseId);
+}
@@ -0,0 +1,58 @@
+package com.mchis.file;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the files of a course, section or assignment for an archive. Only the file metadata is read, so the
+ * query finishes before the first byte of content is streamed and no connection is held during the download.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ArchiveRepository {
+    private static final String PART_FILES = """
+            select s.id, s.name, p.id, p.title, p.name, p.path, null, null, null
+            from part p
+            join section s on s.id = p.section_id
+            where p.dtype in ('file', 'Assignment') and p.path is not null and s.course_id = ?
+            """;
+    private static final String SUBMISSIONS = """
+            select s.id, s.name, p.id, p.title, p.name, sub.path, u.id, u.email, sub.original_name
+            from submission sub
+            join part p on p.id = sub.assignment_id
+            join section s on s.id = p.section_id
+            join _user u on u.id = sub.student_id
+            where sub.path is not null and s.course_id = ?
+            """;
+    private static final RowMapper<ArchiveRow> ROW_MAPPER = (rs, rowNum) -> new ArchiveRow(
+            rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getString(4), rs.getString(5), rs.getString(6),
+            (Integer) rs.getObject(7), rs.getString(8), rs.getString(9));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the part files and then the submissions in scope, narrowed to a section and a part when those are given.
+     */
+    public List<ArchiveRow> findRows(Integer courseId, Integer sectionId, Integer partId) {
+        StringBuilder scope = new StringBuilder();
+        List<Object> args = new ArrayList<>(3);
+        args.add(courseId);
+        if (sectionId != null) {
+            scope.append(" and s.id = ?");
+            args.add(sectionId);
+        }
+        if (partId != null) {
+            scope.append(" and p.id = ?");
+            args.add(partId);
+        }
+        List<ArchiveRow> rows = new ArrayList<>(jdbcTemplate.query(PART_FILES + scope + " order by s.id, p.id",
+                ROW_MAPPER, args.toArray()));
+        rows.addAll(jdbcTemplate.query(SUBMISSIONS + scope + " order by s.id, p.id, u.id", ROW_MAPPER, args.toArray()));
+        return rows;
+    }
+}
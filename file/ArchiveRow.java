@@ -0,0 +1,17 @@
+package com.mchis.file;
+
+/**
+ * One stored file of an archive: a part's own file, or a submission to an assignment when studentId is set.
+ */
+public record ArchiveRow(
+        Integer sectionId,
+        String sectionName,
+        Integer partId,
+        String partTitle,
+        String partName,
+        String path,
+        Integer studentId,
+        String studentEmail,
+        String originalName
+) {
+}
@@ -0,0 +1,154 @@
+package com.mchis.file;
+
+import com.mchis.assignment.AssignmentRepository;
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.section.SectionRepository;
+import com.mchis.user.User;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams the files of a course, section or assignment as a ZIP built on the fly. Entries are read straight from
+ * their stored files into the response, nothing is staged on disk or buffered beyond the stream buffers, so the
+ * first bytes go out as soon as the first entry is opened. Formats that are compressed already are deflated at
+ * {@link Deflater#NO_COMPRESSION}, which only frames the bytes, so each file is still read exactly once. A STORED
+ * entry would need its CRC before its data and so a second pass over the file.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ArchiveService {
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar",
+            "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub", "pdf",
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac",
+            "mp4", "m4v", "mov", "mkv", "webm", "avi"
+    );
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ArchiveRepository archiveRepository;
+    private final SectionRepository sectionRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final CourseMembershipIndex membershipIndex;
+
+    public List<ArchiveRow> findCourseRows(Integer courseId, Authentication authentication) throws OperationNotPermittedException {
+        membershipIndex.requireTeacher((User) authentication.getPrincipal(), courseId);
+        return archiveRepository.findRows(courseId, null, null);
+    }
+
+    public List<ArchiveRow> findSectionRows(Integer courseId, Integer sectionId, Authentication authentication)
+            throws OperationNotPermittedException {
+        membershipIndex.requireTeacher((User) authentication.getPrincipal(), courseId);
+        if (sectionRepository.findByIdAndCourseId(sectionId, courseId).isEmpty()) {
+            throw new EntityNotFoundException(String.format("Section in course %d with id %d not found", courseId, sectionId));
+        }
+        return archiveRepository.findRows(courseId, sectionId, null);
+    }
+
+    public List<ArchiveRow> findAssignmentRows(Integer courseId, Integer sectionId, Integer partId, Authentication authentication)
+            throws OperationNotPermittedException {
+        membershipIndex.requireTeacher((User) authentication.getPrincipal(), courseId);
+        if (!assignmentRepository.existsByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)) {
+            throw new EntityNotFoundException(String.format("Part with id %d in section %d in course %d not found", partId, sectionId, courseId));
+        }
+        return archiveRepository.findRows(courseId, sectionId, partId);
+    }
+
+    /**
+     * Writes the rows as a ZIP to the stream. A file missing on disk is skipped rather than failing the whole archive.
+     */
+    public void write(List<ArchiveRow> rows, OutputStream outputStream) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+        Set<String> names = new HashSet<>();
+        for (ArchiveRow row : rows) {
+            Path file = Paths.get(row.path());
+            if (!Files.isRegularFile(file)) {
+                log.warn(String.format("Skipped missing file of part %d in archive: %s", row.partId(), row.path()));
+                continue;
+            }
+            String name = unique(names, entryName(row));
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(attributes.lastModifiedTime().toMillis());
+            boolean compressed = COMPRESSED_EXTENSIONS.contains(extension(name));
+            // the level applies from the entry's first write, so it is set before the entry and restored after it
+            zip.setLevel(compressed ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            zip.putNextEntry(entry);
+            try (InputStream in = Files.newInputStream(file)) {
+                in.transferTo(zip);
+            }
+            zip.closeEntry();
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * Lays the archive out as section/part, with the submissions of an assignment in a folder next to its file.
+     * Ids prefix every level, so equal titles never merge.
+     */
+    private static String entryName(ArchiveRow row) {
+        String section = sanitize(row.sectionId() + " " + row.sectionName());
+        String part = sanitize(row.partId() + " " + (row.partName() != null ? row.partName() : row.partTitle()));
+        if (row.studentId() == null) {
+            return section + "/" + withExtension(part, row.path());
+        }
+        String student = sanitize(row.studentId() + " " + row.studentEmail());
+        String source = row.originalName() != null ? row.originalName() : row.path();
+        return section + "/" + sanitize(row.partId() + " " + row.partTitle()) + " submissions/" + withExtension(student, source);
+    }
+
+    private static String withExtension(String name, String source) {
+        String extension = extension(Paths.get(source).getFileName().toString());
+        return extension.isEmpty() || extension.equals(extension(name)) ? name : name + "." + extension;
+    }
+
+    private static String unique(Set<String> names, String name) {
+        if (names.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        int slash = name.lastIndexOf('/');
+        String base = dot > slash ? name.substring(0, dot) : name;
+        String suffix = dot > slash ? name.substring(dot) : "";
+        for (int i = 2; ; i++) {
+            String candidate = base + " (" + i + ")" + suffix;
+            if (names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static String sanitize(String name) {
+        String cleaned = name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        return cleaned.length() > 120 ? cleaned.substring(0, 120) : cleaned;
+    }
+
+    private static String extension(String name) {
+        int slash = name.lastIndexOf('/');
+        int dot = name.lastIndexOf('.');
+        return dot <= slash ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
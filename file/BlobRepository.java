@@ -0,0 +1,83 @@
+package com.mchis.file;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the reference counts of {@link StoredBlob} with single statements, so concurrent uploads of the same
+ * content never read and write back a stale count.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BlobRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Records the blob without a reference unless it has a row already. Committed on its own before the file is
+     * placed, the row tells the sweeper the file is in use while the reference is still uncommitted.
+     */
+    public void lease(String id, String sha256, long size) {
+        jdbcTemplate.update("insert into stored_blob (id, sha256, size, ref_count, created_at, touched_at) "
+                + "values (?, ?, ?, 0, now(), now()) on conflict (id) do nothing", id, sha256, size);
+    }
+
+    /**
+     * Adds a reference to the blob, recording it on first use.
+     */
+    public void acquire(String id, String sha256, long size) {
+        jdbcTemplate.update("insert into stored_blob (id, sha256, size, ref_count, created_at, touched_at) values (?, ?, ?, 1, now(), now()) "
+                + "on conflict (id) do update set ref_count = stored_blob.ref_count + 1, touched_at = now()", id, sha256, size);
+    }
+
+    /**
+     * Drops a reference and returns how many are left, or -1 if the blob is not recorded.
+     */
+    public int release(String id) {
+        List<Integer> left = jdbcTemplate.queryForList(
+                "update stored_blob set ref_count = ref_count - 1 where id = ? and ref_count > 0 returning ref_count",
+                Integer.class, id);
+        return left.isEmpty() ? -1 : left.get(0);
+    }
+
+    public boolean exists(String id) {
+        return !jdbcTemplate.queryForList("select 1 from stored_blob where id = ?", Integer.class, id).isEmpty();
+    }
+
+    /**
+     * Returns those of the given blobs that have a row, in a single query.
+     */
+    public Set<String> findRecorded(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList("select id from stored_blob where id = any (?)",
+                String.class, new SqlArrayValue("varchar", ids.toArray())));
+    }
+
+    /**
+     * Returns blobs left at no references, by a rollback after the last release or a lease, or a reclaim that found
+     * the row locked. Rows touched since the cutoff may belong to a reference that is still being committed.
+     */
+    public List<String> findUnreferenced(String afterId, LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList("select id from stored_blob where ref_count = 0 and id > ? "
+                        + "and (touched_at is null or touched_at < ?) order by id limit ?",
+                String.class, afterId, cutoff, limit);
+    }
+
+    /**
+     * Removes the blob's row if nothing references it. A row locked by a transaction that is adding a reference
+     * right now is left alone instead of waited for.
+     */
+    public boolean deleteUnreferenced(String id) {
+        return jdbcTemplate.update("delete from stored_blob where id in "
+                + "(select id from stored_blob where id = ? and ref_count = 0 for update skip locked)", id) > 0;
+    }
+}
@@ -0,0 +1,270 @@
+package com.mchis.file;
+
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.course.CourseService;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.section.SectionRepository;
+import com.mchis.user.User;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.http.HttpStatus;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Resumable uploads of large part files. A session is created with the final size, chunks are PUT at
+ * chunk-aligned offsets, in any order and in parallel, and the finished file is hashed once and moved into the
+ * content store as a new {@link FileUpload} part. A dropped connection only costs the chunk in flight.
+ * <p>
+ * Sessions are rows of {@link UploadSession} and partial files live under the shared upload folder, so an upload
+ * resumes after a restart and its chunks may be served by any node.
+ */
+@Service
+@Slf4j
+public class ChunkedUploadService {
+    private final CourseService courseService;
+    private final CourseMembershipIndex membershipIndex;
+    private final SectionRepository sectionRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final Path folder;
+    private final int chunkSize;
+    private final long maxSize;
+    private final long ttlMillis;
+    private final Duration chunkTimeout;
+
+    public ChunkedUploadService(
+            CourseService courseService,
+            CourseMembershipIndex membershipIndex,
+            SectionRepository sectionRepository,
+            UploadSessionRepository uploadSessionRepository,
+            StorageLayout layout,
+            @Value("${application.file.uploads.chunk-size:8388608}") int chunkSize,
+            @Value("${application.file.uploads.max-size:10737418240}") long maxSize,
+            @Value("${application.file.uploads.session-ttl:PT24H}") Duration ttl,
+            @Value("${application.file.uploads.chunk-timeout:PT15M}") Duration chunkTimeout
+    ) {
+        this.courseService = courseService;
+        this.membershipIndex = membershipIndex;
+        this.sectionRepository = sectionRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        // next to the content store, so completing an upload is a rename rather than a copy
+        this.folder = layout.uploads();
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.chunkTimeout = chunkTimeout;
+    }
+
+    public UploadSessionResponse create(
+            Integer courseId,
+            Integer sectionId,
+            UploadSessionRequest request,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        User user = (User) authentication.getPrincipal();
+        // the checks addPartFile applies when the upload completes, so nobody uploads gigabytes only to be refused
+        membershipIndex.requireTeacher(user, courseId);
+        membershipIndex.requireAssistant(user, courseId);
+        if (sectionRepository.findByIdAndCourseId(sectionId, courseId).isEmpty()) {
+            throw new EntityNotFoundException(String.format("Section in course %d with id %d not found", courseId, sectionId));
+        }
+        if (request.size() <= 0 || request.size() > maxSize) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST, String.format("Upload size must be between 1 and %d bytes", maxSize));
+        }
+        Files.createDirectories(folder);
+        String id = UUID.randomUUID().toString();
+        Path file = folder.resolve(id + ".part");
+        UploadSession session = UploadSession.builder()
+                .id(id)
+                .userId(user.getId())
+                .courseId(courseId)
+                .sectionId(sectionId)
+                .title(request.title())
+                .name(request.name())
+                .fileName(request.fileName())
+                .size(request.size())
+                .chunkSize(chunkSize)
+                .path(file.toString())
+                .received(new byte[(UploadSession.chunkCount(request.size(), chunkSize) + 7) / 8])
+                .lastActivity(LocalDateTime.now())
+                .build();
+        // the row goes first, so a partial file without one is always abandoned
+        uploadSessionRepository.insert(session);
+        // sparse on the usual file systems, chunks then fill it in place
+        try (RandomAccessFile preallocated = new RandomAccessFile(file.toFile(), "rw")) {
+            preallocated.setLength(request.size());
+        } catch (IOException e) {
+            uploadSessionRepository.delete(id);
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        log.info(String.format("Upload %s of %d bytes started for section %d in course %d", id, request.size(), sectionId, courseId));
+        return session.toResponse(ttlMillis);
+    }
+
+    public UploadSessionResponse getProgress(
+            Integer courseId,
+            Integer sectionId,
+            String uploadId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return loadSession(courseId, sectionId, uploadId, authentication).toResponse(ttlMillis);
+    }
+
+    /**
+     * Writes one chunk at its offset with positional writes, so concurrent chunks of the same upload never
+     * share a file position. The chunk counts only once all of its bytes are on disk, and is recorded in the
+     * session row with a single update, so chunks written by other nodes at the same time are kept.
+     */
+    public UploadSessionResponse putChunk(
+            Integer courseId,
+            Integer sectionId,
+            String uploadId,
+            long offset,
+            InputStream body,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        UploadSession session = loadSession(courseId, sectionId, uploadId, authentication);
+        int index = session.chunkAt(offset);
+        long length = session.chunkLength(index);
+        if (!uploadSessionRepository.beginWrite(uploadId)) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, String.format("Upload %s is being completed", uploadId));
+        }
+        boolean written = false;
+        try (FileChannel channel = FileChannel.open(Path.of(session.getPath()), StandardOpenOption.WRITE)) {
+            ReadableByteChannel source = Channels.newChannel(body);
+            long copied = 0;
+            while (copied < length) {
+                long read = channel.transferFrom(source, offset + copied, length - copied);
+                if (read <= 0) {
+                    break;
+                }
+                copied += read;
+            }
+            if (copied < length || body.read() >= 0) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST, String.format("Chunk at offset %d of upload %s must be %d bytes",
+                        offset, uploadId, length));
+            }
+            written = true;
+        } finally {
+            session = uploadSessionRepository.endWrite(uploadId, index, written).orElse(session);
+        }
+        return session.toResponse(ttlMillis);
+    }
+
+    /**
+     * Turns a fully received upload into a file part. The upload is hashed here, outside the transaction that
+     * records the part, and then moved into the content store without another copy.
+     */
+    public void complete(
+            Integer courseId,
+            Integer sectionId,
+            String uploadId,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        UploadSession session = loadSession(courseId, sectionId, uploadId, authentication);
+        int missing = session.missingChunks();
+        if (missing > 0) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, String.format("Upload %s is missing %d of %d chunks",
+                    uploadId, missing, session.chunkCount()));
+        }
+        if (!uploadSessionRepository.beginComplete(uploadId, LocalDateTime.now().minus(chunkTimeout))) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, String.format("Upload %s still has chunks being written", uploadId));
+        }
+        Path file = Path.of(session.getPath());
+        boolean completed = false;
+        try {
+            StoredFile hashed = DigestingCopy.hash(file);
+            courseService.addPartFile(courseId, sectionId, new FileRequest(session.getTitle(), session.getName()), file, hashed,
+                    session.getFileName(), authentication);
+            completed = true;
+        } finally {
+            // a failure after the move leaves nothing to resume
+            if (completed || !Files.exists(file)) {
+                uploadSessionRepository.delete(uploadId);
+            } else {
+                uploadSessionRepository.abortComplete(uploadId);
+            }
+        }
+        log.info(String.format("Upload %s completed", uploadId));
+    }
+
+    public void cancel(
+            Integer courseId,
+            Integer sectionId,
+            String uploadId,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        UploadSession session = loadSession(courseId, sectionId, uploadId, authentication);
+        // conditional on the row, so a cancel never deletes the file of an upload that is being completed
+        if (!uploadSessionRepository.deleteUnlessCompleting(uploadId)) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, String.format("Upload %s is being completed", uploadId));
+        }
+        Files.deleteIfExists(Path.of(session.getPath()));
+    }
+
+    /**
+     * Drops sessions that saw no activity for longer than the session ttl, together with their partial files, and
+     * deletes partial files whose session is gone. Runs at startup and periodically after, sessions of the previous
+     * run that are still fresh stay and can be resumed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.file.uploads.expiry-sweep-ms:600000}",
+            fixedDelayString = "${application.file.uploads.expiry-sweep-ms:600000}")
+    public void expireSessions() {
+        for (String path : uploadSessionRepository.deleteIdleSince(LocalDateTime.now().minus(Duration.ofMillis(ttlMillis)))) {
+            try {
+                Files.deleteIfExists(Path.of(path));
+                log.info(String.format("Upload expired: %s", path));
+            } catch (IOException e) {
+                log.warn(String.format("Failed to delete expired upload: %s", path), e);
+            }
+        }
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        Set<String> live = uploadSessionRepository.findPaths();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*.part")) {
+            for (Path file : files) {
+                // a session's row is inserted before its file is created, so a file without one is abandoned
+                if (!live.contains(file.toString()) && Files.deleteIfExists(file)) {
+                    log.info(String.format("Deleted abandoned upload: %s", file));
+                }
+            }
+        } catch (IOException e) {
+            log.warn(String.format("Failed to clean up the upload folder: %s", folder), e);
+        }
+    }
+
+    private UploadSession loadSession(Integer courseId, Integer sectionId, String uploadId, Authentication authentication)
+            throws OperationNotPermittedException {
+        UploadSession session = uploadSessionRepository.findById(uploadId).orElse(null);
+        if (session == null || !session.getCourseId().equals(courseId) || !session.getSectionId().equals(sectionId)) {
+            throw new EntityNotFoundException(String.format("Upload %s in section %d in course %d not found", uploadId, sectionId, courseId));
+        }
+        User user = (User) authentication.getPrincipal();
+        if (!session.getUserId().equals(user.getId())) {
+            throw new OperationNotPermittedException(String.format("Upload %s was not started by user %s", uploadId, user.getFullName()));
+        }
+        return session;
+    }
+}
@@ -0,0 +1,181 @@
+package com.mchis.file;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Content-addressed store for part files. A blob lives at {@code blobs/aa/bb/<sha256>.<ext>}, see
+ * {@link StorageLayout}, and is written once
+ * however many parts upload the same content; {@link StoredBlob} counts the paths pointing at it and the file is
+ * removed when the last of them goes.
+ * <p>
+ * Writing or removing a blob and changing its count happen under a lock striped by blob, so an upload never
+ * reuses a file that is being deleted. A blob file is never rewritten once in place, and the lease that keeps
+ * {@link OrphanFileSweeper} off it while its first reference is uncommitted is its row, not its modification time.
+ */
+@Component
+@Slf4j
+public class ContentStore {
+    private static final int STRIPES = 64;
+
+    private final BlobRepository blobRepository;
+    private final StorageLayout layout;
+    private final TransactionTemplate separateTransactionTemplate;
+    private final Path root;
+    private final Lock[] stripes = new Lock[STRIPES];
+
+    public ContentStore(
+            BlobRepository blobRepository,
+            PlatformTransactionManager transactionManager,
+            StorageLayout layout
+    ) {
+        this.blobRepository = blobRepository;
+        this.layout = layout;
+        // leases must be visible before the surrounding transaction commits, reclaims run after the releasing one did
+        this.separateTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.separateTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.root = layout.blobs();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Streams the content into the store, hashing it on the way, and returns its blob. Nothing new is kept on disk
+     * if the same content with the same extension is stored already. The reference is counted in the surrounding transaction.
+     */
+    public StoredFile put(InputStream source, String extension) throws IOException {
+        Files.createDirectories(root);
+        Path temp = Files.createTempFile(root, ".upload-", ".part");
+        return commit(temp, DigestingCopy.write(source, temp), extension);
+    }
+
+    /**
+     * Moves a file that is already complete and hashed into the store, as {@link #put(InputStream, String)} does
+     * with the uploads it writes itself. The file must be on the same file system as the store.
+     */
+    public StoredFile adopt(Path file, StoredFile hashed, String extension) throws IOException {
+        Files.createDirectories(root);
+        return commit(file, hashed, extension);
+    }
+
+    /**
+     * Adds a file stored elsewhere to the store, linking or copying it so the original stays valid until the
+     * surrounding transaction has moved its references over.
+     */
+    public StoredFile importFile(Path file, StoredFile hashed, String extension) throws IOException {
+        Files.createDirectories(root);
+        Path temp = root.resolve(".import-" + UUID.randomUUID() + ".part");
+        StorageLayout.linkOrCopy(file, temp);
+        return commit(temp, hashed, extension);
+    }
+
+    private StoredFile commit(Path temp, StoredFile written, String extension) throws IOException {
+        // the extension becomes part of the blob id and its path, so only the whitelisted form is used
+        String safe = StorageLayout.extension("." + extension);
+        String id = safe.isEmpty() ? written.sha256() : written.sha256() + "." + safe;
+        Path target = layout.blob(id);
+        Lock lock = stripe(id);
+        lock.lock();
+        try {
+            separateTransactionTemplate.executeWithoutResult(status -> blobRepository.lease(id, written.sha256(), written.size()));
+            if (Files.exists(target)) {
+                log.info(String.format("Content already stored as: %s", target));
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                log.info(String.format("File saved to: %s", target));
+            }
+            blobRepository.acquire(id, written.sha256(), written.size());
+        } finally {
+            lock.unlock();
+            Files.deleteIfExists(temp);
+        }
+        return new StoredFile(target.toString(), written.size(), written.sha256());
+    }
+
+    public boolean owns(String path) {
+        return path != null && Paths.get(path).startsWith(root);
+    }
+
+    /**
+     * Drops one reference to the blob. The file is removed once the transaction that dropped the last reference commits,
+     * so a rollback never leaves a part pointing at nothing.
+     */
+    public void release(String path) {
+        String id = Paths.get(path).getFileName().toString();
+        int left = blobRepository.release(id);
+        if (left < 0) {
+            log.warn(String.format("Released unknown blob: %s", path));
+        } else if (left == 0) {
+            afterCommit(() -> reclaim(id));
+        }
+    }
+
+    /**
+     * Deletes a blob file that has no row. Every blob in use has a committed row, its lease, so the check under
+     * the blob's lock is enough.
+     */
+    boolean deleteOrphan(Path file) throws IOException {
+        String id = file.getFileName().toString();
+        Lock lock = stripe(id);
+        lock.lock();
+        try {
+            if (blobRepository.exists(id)) {
+                return false;
+            }
+            return Files.deleteIfExists(file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void reclaim(String id) {
+        Lock lock = stripe(id);
+        lock.lock();
+        try {
+            Boolean deleted = separateTransactionTemplate.execute(status -> blobRepository.deleteUnreferenced(id));
+            if (Boolean.TRUE.equals(deleted)) {
+                Path file = layout.blob(id);
+                Files.deleteIfExists(file);
+                log.info(String.format("Deleted file: %s", file));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format("Failed to delete blob: %s", id), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lock stripe(String id) {
+        return stripes[Math.floorMod(id.hashCode(), STRIPES)];
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
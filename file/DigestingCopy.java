@@ -0,0 +1,55 @@
+package com.mchis.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Copies a stream to a file while hashing it, so the checksum costs no second read of the content.
+ */
+final class DigestingCopy {
+    private DigestingCopy() {
+    }
+
+    /**
+     * Writes the stream to the target and returns its size and SHA-256. The target is deleted if the copy fails.
+     */
+    static StoredFile write(InputStream source, Path target) throws IOException {
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream in = new DigestInputStream(source, digest);
+             OutputStream out = Files.newOutputStream(target)) {
+            size = in.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        return new StoredFile(target.toString(), size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Hashes a file that is already on disk, for content that did not arrive as a single stream.
+     */
+    static StoredFile hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            size = in.transferTo(OutputStream.nullOutputStream());
+        }
+        return new StoredFile(file.toString(), size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
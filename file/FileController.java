@@ -0,0 +1,162 @@
+package com.mchis.file;
+
+import com.mchis.exception.OperationNotPermittedException;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("courses")
+@Tag(name = "File")
+public class FileController {
+    private final FileDownloadService fileDownloadService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final ArchiveService archiveService;
+
+    @GetMapping(value = "/teach/{course-id}/archive", produces = "application/zip")
+    public void downloadCourseArchive(
+            @PathVariable("course-id") Integer courseId,
+            Authentication authentication,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        List<ArchiveRow> rows = archiveService.findCourseRows(courseId, authentication);
+        zip(String.format("course-%d.zip", courseId), rows, response);
+    }
+
+    @GetMapping(value = "/teach/{course-id}/sections/{section-id}/archive", produces = "application/zip")
+    public void downloadSectionArchive(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            Authentication authentication,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        List<ArchiveRow> rows = archiveService.findSectionRows(courseId, sectionId, authentication);
+        zip(String.format("course-%d-section-%d.zip", courseId, sectionId), rows, response);
+    }
+
+    @GetMapping(value = "/teach/{course-id}/sections/{section-id}/assignments/{part-id}/archive", produces = "application/zip")
+    public void downloadAssignmentArchive(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            Authentication authentication,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        List<ArchiveRow> rows = archiveService.findAssignmentRows(courseId, sectionId, partId, authentication);
+        zip(String.format("course-%d-assignment-%d.zip", courseId, partId), rows, response);
+    }
+
+    @PostMapping("/teach/{course-id}/sections/{section-id}/uploads")
+    public ResponseEntity<UploadSessionResponse> createUpload(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @RequestBody UploadSessionRequest request,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        return ResponseEntity.ok(chunkedUploadService.create(courseId, sectionId, request, authentication));
+    }
+
+    @GetMapping("/teach/{course-id}/sections/{section-id}/uploads/{upload-id}")
+    public ResponseEntity<UploadSessionResponse> getUpload(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("upload-id") String uploadId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.ok(chunkedUploadService.getProgress(courseId, sectionId, uploadId, authentication));
+    }
+
+    @PutMapping(value = "/teach/{course-id}/sections/{section-id}/uploads/{upload-id}", consumes = "application/octet-stream")
+    public ResponseEntity<UploadSessionResponse> putChunk(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("upload-id") String uploadId,
+            @RequestParam("offset") long offset,
+            InputStream body,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        return ResponseEntity.ok(chunkedUploadService.putChunk(courseId, sectionId, uploadId, offset, body, authentication));
+    }
+
+    @PostMapping("/teach/{course-id}/sections/{section-id}/uploads/{upload-id}/complete")
+    public ResponseEntity<?> completeUpload(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("upload-id") String uploadId,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        chunkedUploadService.complete(courseId, sectionId, uploadId, authentication);
+        return ResponseEntity.accepted().build();
+    }
+
+    @DeleteMapping("/teach/{course-id}/sections/{section-id}/uploads/{upload-id}")
+    public ResponseEntity<?> cancelUpload(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("upload-id") String uploadId,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        chunkedUploadService.cancel(courseId, sectionId, uploadId, authentication);
+        return ResponseEntity.accepted().build();
+    }
+
+    @RequestMapping(value = "/{course-id}/sections/{section-id}/files/{part-id}/content", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void downloadFile(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        fileDownloadService.downloadFile(courseId, sectionId, partId, authentication, request, response);
+    }
+
+    @RequestMapping(value = "/{course-id}/sections/{section-id}/assignments/{part-id}/content", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void downloadAssignment(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        fileDownloadService.downloadAssignment(courseId, sectionId, partId, authentication, request, response);
+    }
+
+    /**
+     * Writes the archive on the request thread, as the file downloads do, so a long archive is not cut off
+     * by the MVC async request timeout.
+     */
+    private void zip(String filename, List<ArchiveRow> rows, HttpServletResponse response) throws IOException {
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString());
+        archiveService.write(rows, response.getOutputStream());
+    }
+
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<String> uploadRejected(UploadRejectedException e) {
+        return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+    }
+}
@@ -0,0 +1,32 @@
+package com.mchis.file;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored file waiting to be deleted by {@link FileDeletionWorker}. Rows are written in the transaction that stops
+ * referencing the file, so a deletion is never lost and never runs for a change that rolled back.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        indexes = @Index(name = "idx_file_deletion_next_attempt_at", columnList = "next_attempt_at")
+)
+public class FileDeletion {
+    // identity rather than a sequence, rows are only ever inserted by FileDeletionRepository
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String path;
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+}
@@ -0,0 +1,82 @@
+package com.mchis.file;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The outbox of {@link FileDeletion}s. The files of a whole section or course, part files and the submissions
+ * to its assignments, are queued with one insert-select, without loading the rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FileDeletionRepository {
+    private static final String INSERT = "insert into file_deletion (path, attempts, created_at, next_attempt_at) ";
+    private static final String SECTION_FILES = """
+            select p.path, 0, now(), now() from part p
+            where p.section_id = ? and p.dtype in ('file', 'Assignment') and p.path is not null
+            union all
+            select sub.path, 0, now(), now() from submission sub
+            join part p on p.id = sub.assignment_id
+            where p.section_id = ? and sub.path is not null
+            """;
+    private static final String COURSE_FILES = """
+            select p.path, 0, now(), now() from part p
+            join section s on s.id = p.section_id
+            where s.course_id = ? and p.dtype in ('file', 'Assignment') and p.path is not null
+            union all
+            select sub.path, 0, now(), now() from submission sub
+            join part p on p.id = sub.assignment_id
+            join section s on s.id = p.section_id
+            where s.course_id = ? and sub.path is not null
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void enqueue(String path) {
+        jdbcTemplate.update(INSERT + "values (?, 0, now(), now())", path);
+    }
+
+    public int enqueueSectionFiles(Integer sectionId) {
+        return jdbcTemplate.update(INSERT + SECTION_FILES, sectionId, sectionId);
+    }
+
+    public int enqueueCourseFiles(Integer courseId) {
+        return jdbcTemplate.update(INSERT + COURSE_FILES, courseId, courseId);
+    }
+
+    public int enqueueSubmissionFiles(Integer assignmentId) {
+        return jdbcTemplate.update(INSERT + "select path, 0, now(), now() from submission where assignment_id = ? and path is not null",
+                assignmentId);
+    }
+
+    /**
+     * Locks up to limit due deletions for the calling transaction. Rows another worker holds are skipped, not waited for.
+     */
+    public List<FileDeletion> claim(int limit) {
+        return jdbcTemplate.query("select id, path, attempts from file_deletion where next_attempt_at <= now() "
+                        + "order by id limit ? for update skip locked",
+                (rs, rowNum) -> FileDeletion.builder()
+                        .id(rs.getLong("id"))
+                        .path(rs.getString("path"))
+                        .attempts(rs.getInt("attempts"))
+                        .build(),
+                limit);
+    }
+
+    public void deleteAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("delete from file_deletion where id = any (?)", new SqlArrayValue("bigint", ids.toArray()));
+    }
+
+    public void retryLater(Long id, int attempts, LocalDateTime nextAttemptAt) {
+        jdbcTemplate.update("update file_deletion set attempts = ?, next_attempt_at = ? where id = ?", attempts, nextAttemptAt, id);
+    }
+}
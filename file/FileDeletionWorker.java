@@ -0,0 +1,77 @@
+package com.mchis.file;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drains the {@link FileDeletion} outbox in the background, so no request waits on the file system to delete.
+ * A content store path only loses its reference here, see {@link ContentStore#release(String)}. Failed deletions
+ * are retried with exponential backoff.
+ */
+@Component
+@Slf4j
+public class FileDeletionWorker {
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    private final FileDeletionRepository fileDeletionRepository;
+    private final ContentStore contentStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public FileDeletionWorker(
+            FileDeletionRepository fileDeletionRepository,
+            ContentStore contentStore,
+            PlatformTransactionManager transactionManager,
+            @Value("${application.file.deletion.batch-size:100}") int batchSize
+    ) {
+        this.fileDeletionRepository = fileDeletionRepository;
+        this.contentStore = contentStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${application.file.deletion.poll-ms:5000}")
+    public void drain() {
+        Integer processed;
+        do {
+            processed = transactionTemplate.execute(status -> processBatch());
+        } while (processed != null && processed == batchSize);
+    }
+
+    private int processBatch() {
+        List<FileDeletion> batch = fileDeletionRepository.claim(batchSize);
+        List<Long> done = new ArrayList<>(batch.size());
+        for (FileDeletion deletion : batch) {
+            try {
+                delete(deletion.getPath());
+                done.add(deletion.getId());
+            } catch (IOException e) {
+                int attempts = deletion.getAttempts() + 1;
+                long backoff = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(attempts, 12));
+                fileDeletionRepository.retryLater(deletion.getId(), attempts, LocalDateTime.now().plusSeconds(backoff));
+                log.warn(String.format("Failed to delete file %s, attempt %d", deletion.getPath(), attempts), e);
+            }
+        }
+        fileDeletionRepository.deleteAll(done);
+        return batch.size();
+    }
+
+    private void delete(String path) throws IOException {
+        if (contentStore.owns(path)) {
+            contentStore.release(path);
+        } else if (Files.deleteIfExists(Paths.get(path))) {
+            log.info(String.format("Deleted file: %s", path));
+        }
+    }
+}
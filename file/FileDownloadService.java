@@ -0,0 +1,199 @@
+package com.mchis.file;
+
+import com.mchis.assignment.AssignmentFile;
+import com.mchis.assignment.AssignmentRepository;
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.user.User;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serves stored part files with conditional GET and single byte-range support. The body is handed to
+ * Tomcat's sendfile when the connector offers it and copied with {@link FileChannel#transferTo} otherwise,
+ * so the bytes never pass through the heap.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileDownloadService {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FileRepository fileRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final CourseMembershipIndex membershipIndex;
+    private final ContentStore contentStore;
+
+    public void downloadFile(
+            Integer courseId,
+            Integer sectionId,
+            Integer partId,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        membershipIndex.requireMember((User) authentication.getPrincipal(), courseId);
+        PartFile file = fileRepository.findFile(partId, sectionId, courseId)
+                .orElseThrow(() -> partNotFound(courseId, sectionId, partId));
+        Path path = Paths.get(file.path());
+        serve(path, downloadName(file.name(), file.title(), path), request, response);
+    }
+
+    /**
+     * Students only get the assignment file once it has started, teachers and assistants always do.
+     */
+    public void downloadAssignment(
+            Integer courseId,
+            Integer sectionId,
+            Integer partId,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        User user = (User) authentication.getPrincipal();
+        membershipIndex.requireMember(user, courseId);
+        AssignmentFile assignment = assignmentRepository.findFile(partId, sectionId, courseId)
+                .orElseThrow(() -> partNotFound(courseId, sectionId, partId));
+        if (assignment.startTime() != null && LocalDateTime.now().isBefore(assignment.startTime())
+                && !membershipIndex.isTeacher(courseId, user.getId()) && !membershipIndex.isAssistant(courseId, user.getId())) {
+            throw new OperationNotPermittedException(String.format("Assignment %d opens at %s", partId, assignment.startTime()));
+        }
+        Path path = Paths.get(assignment.path());
+        serve(path, downloadName(assignment.name(), assignment.title(), path), request, response);
+    }
+
+    /**
+     * Names the download after the part rather than the stored file, whose name is a content hash. The stored
+     * extension is appended when the part's name lacks it, so the content type can still be told from the name.
+     */
+    static String downloadName(String name, String title, Path file) {
+        String base = name != null && !name.isBlank() ? name.trim()
+                : title != null && !title.isBlank() ? title.trim()
+                : "download";
+        String extension = StorageLayout.extension(file.getFileName().toString());
+        if (extension.isEmpty() || base.toLowerCase(Locale.ROOT).endsWith("." + extension)) {
+            return base;
+        }
+        return base + "." + extension;
+    }
+
+    private void serve(Path file, String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            throw new EntityNotFoundException(String.format("File %s not found", file.getFileName()));
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        // a blob is named after the hash of its content, other stored files are never rewritten in place,
+        // so size and modification time identify them
+        String etag = contentStore.owns(file.toString())
+                ? "\"" + file.getFileName() + "\""
+                : "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(size) + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // the stored extension is whitelisted, the part's name is whatever the teacher typed
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString()).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().filename(fileName, UTF_8).build().toString());
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && size > 0 && rangeApplies(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // several ranges would need a multipart body, serving the whole file instead is allowed
+            if (ranges.size() == 1) {
+                HttpRange requested = ranges.get(0);
+                start = requested.getRangeStart(size);
+                end = requested.getRangeEnd(size);
+                if (start >= size || start > end) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+        long length = size == 0 ? 0 : end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    private static boolean rangeApplies(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond() == lastModified / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static EntityNotFoundException partNotFound(Integer courseId, Integer sectionId, Integer partId) {
+        return new EntityNotFoundException(String.format("Part with id %d in section %d in course %d not found", partId, sectionId, courseId));
+    }
+}
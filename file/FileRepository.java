@@ -1,6 +1,18 @@
 package com.mchis.file;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface FileRepository extends JpaRepository<FileUpload, Integer> {
+    Optional<FileUpload> findByIdAndSectionIdAndSectionCourseId(Integer id, Integer sectionId, Integer courseId);
+
+    @Query("select new com.mchis.file.PartFile(f.path, f.name, f.title) from file f where f.id = :id and f.section.id = :sectionId and f.section.course.id = :courseId")
+    Optional<PartFile> findFile(
+            @Param("id") Integer id,
+            @Param("sectionId") Integer sectionId,
+            @Param("courseId") Integer courseId
+    );
 }
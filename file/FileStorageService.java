@@ -3,86 +3,182 @@ package com.mchis.file;
 import jakarta.annotation.Nonnull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-
-import static java.io.File.separator;
-import static java.lang.System.currentTimeMillis;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FileStorageService {
-    @Value("${application.file.uploads.file-output-path}")
-    private String fileUploadPath;
+    private final ContentStore contentStore;
+    private final StorageLayout layout;
+    private final FileDeletionRepository fileDeletionRepository;
 
+    /**
+     * Stores the file of a part in the content store, see {@link ContentStore}. The path counts as a reference
+     * until it is passed to {@link #deleteFile(String)}.
+     */
     public String saveFile(
             @Nonnull MultipartFile sourceFile,
             @Nonnull Integer courseId
     ) {
-        final String fileUploadSubPath = "courses" + separator + courseId;
-        return uploadFile(sourceFile, fileUploadSubPath);
+        return uploadFile(sourceFile, courseId);
     }
 
     public String saveAssignment(
             @Nonnull MultipartFile sourceFile,
             @Nonnull Integer courseId
     ) {
-        final String fileUploadSubPath = "courses" + separator + courseId + separator + "assignments";
-        return uploadFile(sourceFile, fileUploadSubPath);
+        return uploadFile(sourceFile, courseId);
+    }
+
+    /**
+     * Moves a finished chunked upload into the content store under the checksum computed for it.
+     */
+    public String saveUpload(
+            @Nonnull Path upload,
+            @Nonnull StoredFile hashed,
+            String originalName
+    ) throws IOException {
+        return contentStore.adopt(upload, hashed, StorageLayout.extension(originalName)).path();
+    }
+
+    /**
+     * Deletes spooled files that no pending submission points at and that are older than minAge. Younger files may
+     * belong to an upload whose pending row is not committed yet. Those left behind were never acknowledged, or
+     * their submission was stored just before the process stopped.
+     */
+    public void clearSpool(Set<String> pending, Duration minAge) {
+        Path folder = layout.spool();
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - minAge.toMillis();
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    if (pending.contains(file.toString()) || Files.getLastModifiedTime(file).toMillis() >= cutoff) {
+                        continue;
+                    }
+                    Files.deleteIfExists(file);
+                    deleted++;
+                } catch (IOException e) {
+                    log.warn(String.format("Failed to delete spooled file %s", file), e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn(String.format("Failed to clear the spool %s", folder), e);
+        }
+        if (deleted > 0) {
+            log.warn(String.format("Deleted %d spooled files without a pending submission", deleted));
+        }
+    }
+
+    /**
+     * Parks an upload in the spool directory so the request can be acknowledged before it is processed.
+     * The multipart temp file is usually moved there rather than copied.
+     */
+    public Path spool(@Nonnull MultipartFile sourceFile) throws IOException {
+        Path folder = layout.spool();
+        Files.createDirectories(folder);
+        Path spooled = folder.resolve(UUID.randomUUID() + ".part");
+        try {
+            sourceFile.transferTo(spooled);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        return spooled;
     }
 
+    /**
+     * Copies a spooled submission into the submission store, hashing and counting it on the way, and returns where
+     * it landed. The spooled file stays until its pending submission is gone, the caller deletes it.
+     */
+    public StoredFile saveSubmission(
+            @Nonnull Path spooled,
+            String originalName,
+            @Nonnull Integer courseId,
+            @Nonnull Integer assignmentId,
+            @Nonnull Integer studentId
+    ) throws IOException {
+        Path target = layout.newSubmission(StorageLayout.extension(originalName));
+        try (InputStream in = Files.newInputStream(spooled)) {
+            StoredFile stored = store(in, target);
+            log.info(String.format("Submission of user %d for assignment %d in course %d saved to: %s",
+                    studentId, assignmentId, courseId, target));
+            return stored;
+        }
+    }
+
+    /**
+     * Queues a stored file for deletion in the surrounding transaction, {@link FileDeletionWorker} deletes it
+     * after the commit. A content store path only loses a reference, the blob goes with its last one.
+     */
     public void deleteFile(String path) {
-        final File file = new File(path);
-        if (file.delete()) {
-            log.info(String.format("Deleted file: %s", file));
-        } else {
-            log.warn(String.format("Failed to delete file: %s", file));
+        if (path != null) {
+            fileDeletionRepository.enqueue(path);
         }
     }
 
+    /**
+     * Queues the files of every part in the section and of the submissions to its assignments, before they are removed.
+     */
+    public void deleteSectionFiles(@Nonnull Integer sectionId) {
+        fileDeletionRepository.enqueueSectionFiles(sectionId);
+    }
+
+    /**
+     * Queues the submitted files of an assignment, before its submissions are removed.
+     */
+    public void deleteSubmissionFiles(@Nonnull Integer assignmentId) {
+        fileDeletionRepository.enqueueSubmissionFiles(assignmentId);
+    }
+
+    public void deleteCourseFiles(@Nonnull Integer courseId) {
+        fileDeletionRepository.enqueueCourseFiles(courseId);
+    }
+
     private String uploadFile(
             @Nonnull MultipartFile sourceFile,
-            @Nonnull String fileUploadSubPath
+            @Nonnull Integer courseId
     ) {
-        final String finalUploadPath = fileUploadPath + separator + fileUploadSubPath;
-        File targetFolder = new File(finalUploadPath);
-
-        if (!targetFolder.exists()) {
-            boolean folderCreated = targetFolder.mkdirs();
-            if (!folderCreated) {
-                log.warn(String.format("Failed to create the target folder: %s",targetFolder));
-                return null;
-            }
-        }
-        final String fileExtension = getFileExtension(sourceFile.getOriginalFilename());
-        String targetFilePath = finalUploadPath + separator + currentTimeMillis() + "." + fileExtension;
-        Path targetPath = Paths.get(targetFilePath);
-        try {
-            Files.write(targetPath, sourceFile.getBytes());
-            log.info(String.format("File saved to: %s", targetFilePath));
-            return targetFilePath;
+        final String fileExtension = StorageLayout.extension(sourceFile.getOriginalFilename());
+        // streamed from the multipart input, the upload never has to fit in the heap
+        try (InputStream in = sourceFile.getInputStream()) {
+            return contentStore.put(in, fileExtension).path();
         } catch (IOException e) {
-            log.error("File was not saved", e);
+            log.error(String.format("File for course %d was not saved", courseId), e);
         }
         return null;
     }
 
-    private String getFileExtension(String fileName) {
-        if (fileName == null || fileName.isEmpty()) {
-            return "";
-        }
-        int lastDotIndex = fileName.lastIndexOf(".");
-        if (lastDotIndex == -1) {
-            return "";
+    /**
+     * Copies the stream into a temporary file next to the target and moves it into place once complete,
+     * so readers never see a partial file and a failed copy leaves nothing behind.
+     */
+    private StoredFile store(InputStream source, Path target) throws IOException {
+        Path folder = target.getParent();
+        Files.createDirectories(folder);
+        Path temp = Files.createTempFile(folder, ".upload-", ".part");
+        StoredFile written = DigestingCopy.write(source, temp);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
         }
-        return fileName.substring(lastDotIndex + 1).toLowerCase();
+        return new StoredFile(target.toString(), written.size(), written.sha256());
     }
 }
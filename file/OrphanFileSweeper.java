@@ -0,0 +1,169 @@
+package com.mchis.file;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reconciles the files on disk with the rows pointing at them and deletes what nothing references: blobs without
+ * a {@link StoredBlob} row and submission files without a submission. Each directory of the sharded
+ * {@link StorageLayout} is a fork/join task, so the walk and its lookups, one query per directory, run in parallel.
+ * <p>
+ * Files younger than the grace period are left alone, they may still be written or their rows may not be committed
+ * yet. Blobs are protected by their row, see {@link ContentStore}, so the age of a blob file only filters out the
+ * temporary files of uploads in progress. The old per-course folders are not swept, {@link StorageMigrationJob}
+ * empties them.
+ */
+@Component
+@Slf4j
+public class OrphanFileSweeper {
+    private static final int UNREFERENCED_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobRepository blobRepository;
+    private final ContentStore contentStore;
+    private final StorageLayout layout;
+    private final ForkJoinPool pool;
+    private final long graceMillis;
+
+    public OrphanFileSweeper(
+            JdbcTemplate jdbcTemplate,
+            BlobRepository blobRepository,
+            ContentStore contentStore,
+            StorageLayout layout,
+            @Value("${application.file.sweeper.parallelism:4}") int parallelism,
+            @Value("${application.file.sweeper.grace:P1D}") Duration grace
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobRepository = blobRepository;
+        this.contentStore = contentStore;
+        this.layout = layout;
+        this.pool = new ForkJoinPool(parallelism);
+        this.graceMillis = grace.toMillis();
+    }
+
+    @Scheduled(cron = "${application.file.sweeper.cron:0 0 4 * * *}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - graceMillis;
+        LocalDateTime leaseCutoff = LocalDateTime.now().minus(Duration.ofMillis(graceMillis));
+        // rows that dropped to zero references without their file being reclaimed
+        int reclaimed = 0;
+        List<String> unreferenced;
+        String lastId = "";
+        do {
+            unreferenced = blobRepository.findUnreferenced(lastId, leaseCutoff, UNREFERENCED_BATCH);
+            unreferenced.forEach(contentStore::reclaim);
+            reclaimed += unreferenced.size();
+            lastId = unreferenced.isEmpty() ? lastId : unreferenced.get(unreferenced.size() - 1);
+        } while (unreferenced.size() == UNREFERENCED_BATCH);
+
+        LongAdder scanned = new LongAdder();
+        LongAdder deleted = new LongAdder();
+        if (Files.isDirectory(layout.blobs())) {
+            pool.invoke(new SweepTask(layout.blobs(), true, cutoff, scanned, deleted));
+        }
+        if (Files.isDirectory(layout.submissions())) {
+            pool.invoke(new SweepTask(layout.submissions(), false, cutoff, scanned, deleted));
+        }
+        log.info(String.format("Swept %d stored files, deleted %d orphans and reclaimed %d unreferenced blobs",
+                scanned.sum(), deleted.sum(), reclaimed));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private Set<String> findReferencedSubmissions(List<Path> files) {
+        List<String> paths = files.stream().map(Path::toString).toList();
+        return new HashSet<>(jdbcTemplate.queryForList("select path from submission where path = any (?)",
+                String.class, new SqlArrayValue("varchar", paths.toArray())));
+    }
+
+    private class SweepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final boolean blobs;
+        private final long cutoff;
+        private final LongAdder scanned;
+        private final LongAdder deleted;
+
+        private SweepTask(Path directory, boolean blobs, long cutoff, LongAdder scanned, LongAdder deleted) {
+            this.directory = directory;
+            this.blobs = blobs;
+            this.cutoff = cutoff;
+            this.scanned = scanned;
+            this.deleted = deleted;
+        }
+
+        @Override
+        protected void compute() {
+            List<SweepTask> subdirectories = new ArrayList<>();
+            List<Path> candidates = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry)) {
+                        subdirectories.add(new SweepTask(entry, blobs, cutoff, scanned, deleted));
+                    } else {
+                        scanned.increment();
+                        if (Files.getLastModifiedTime(entry).toMillis() < cutoff) {
+                            candidates.add(entry);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.warn(String.format("Failed to sweep directory: %s", directory), e);
+                return;
+            }
+            if (!candidates.isEmpty()) {
+                sweep(candidates);
+            }
+            invokeAll(subdirectories);
+        }
+
+        private void sweep(List<Path> candidates) {
+            try {
+                if (blobs) {
+                    Set<String> recorded = blobRepository.findRecorded(
+                            candidates.stream().map(file -> file.getFileName().toString()).toList());
+                    for (Path file : candidates) {
+                        // rechecked under the blob's lock, an upload may be reusing it right now
+                        if (!recorded.contains(file.getFileName().toString()) && contentStore.deleteOrphan(file)) {
+                            deleted.increment();
+                            log.info(String.format("Deleted orphaned file: %s", file));
+                        }
+                    }
+                } else {
+                    Set<String> referenced = findReferencedSubmissions(candidates);
+                    for (Path file : candidates) {
+                        if (!referenced.contains(file.toString()) && Files.deleteIfExists(file)) {
+                            deleted.increment();
+                            log.info(String.format("Deleted orphaned file: %s", file));
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn(String.format("Failed to sweep directory: %s", directory), e);
+            }
+        }
+    }
+}
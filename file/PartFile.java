@@ -0,0 +1,8 @@
+package com.mchis.file;
+
+public record PartFile(
+        String path,
+        String name,
+        String title
+) {
+}
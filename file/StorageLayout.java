@@ -0,0 +1,99 @@
+package com.mchis.file;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Where stored files live under the upload folder. Every name is a content hash or a random UUID in hex, and files
+ * are fanned out over two levels of 256 directories by the first four digits of their name, so names never collide
+ * and ten million files still leave only a few hundred entries per directory.
+ */
+@Component
+public class StorageLayout {
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    private final Path root;
+
+    public StorageLayout(@Value("${application.file.uploads.file-output-path}") String fileUploadPath) {
+        this.root = Paths.get(fileUploadPath);
+    }
+
+    public Path blobs() {
+        return root.resolve("blobs");
+    }
+
+    public Path blob(String id) {
+        return shard(blobs(), id);
+    }
+
+    public Path submissions() {
+        return root.resolve("submissions");
+    }
+
+    /**
+     * Returns a fresh path for a submission file with the given extension.
+     */
+    public Path newSubmission(String extension) {
+        String id = UUID.randomUUID().toString().replace("-", "");
+        return shard(submissions(), extension.isEmpty() ? id : id + "." + extension);
+    }
+
+    public Path spool() {
+        return root.resolve("spool");
+    }
+
+    public Path uploads() {
+        return root.resolve("uploads");
+    }
+
+    /**
+     * The per-course folders files were stored in before this layout.
+     */
+    public Path legacyCourses() {
+        return root.resolve("courses");
+    }
+
+    /**
+     * Returns the extension of a client supplied file name in lower case, or an empty string unless it is a short
+     * run of letters and digits. Anything else could carry separators or {@code ..} into the stored path.
+     */
+    public static String extension(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return "";
+        }
+        String extension = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private Path shard(Path folder, String name) {
+        Path path = folder.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+        if (!path.normalize().startsWith(folder.normalize())) {
+            throw new IllegalArgumentException("Stored file outside its folder: " + path);
+        }
+        return path;
+    }
+
+    /**
+     * Hard links the source to the target, or copies it where the file system cannot link.
+     */
+    static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.mchis.file;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves files stored under the old per-course folders into the {@link StorageLayout}: part files into the
+ * content store, submissions into the sharded submission folders. Rows are walked by id in batches, each batch
+ * rewrites its path columns in one short transaction, and an old file is deleted only after the batch that stopped
+ * referencing it committed, so the job can be stopped and rerun at any point.
+ * <p>
+ * Enabled with {@code application.file.uploads.migration.enabled=true}, it runs once in the background after startup.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "application.file.uploads.migration.enabled", havingValue = "true")
+public class StorageMigrationJob {
+    private static final String FIND_PARTS = "select id, path from part where dtype in ('file', 'Assignment') "
+            + "and path is not null and not starts_with(path, ?) and id > ? order by id limit ?";
+    private static final String FIND_SUBMISSIONS = "select id, path from submission "
+            + "where path is not null and not starts_with(path, ?) and id > ? order by id limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ContentStore contentStore;
+    private final StorageLayout layout;
+    private final int batchSize;
+
+    public StorageMigrationJob(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ContentStore contentStore,
+            StorageLayout layout,
+            @Value("${application.file.uploads.migration.batch-size:200}") int batchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.contentStore = contentStore;
+        this.layout = layout;
+        this.batchSize = batchSize;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        try {
+            int parts = migrateParts();
+            int submissions = migrateSubmissions();
+            log.info(String.format("Moved %d part files and %d submissions to the sharded layout", parts, submissions));
+        } catch (RuntimeException e) {
+            log.error("Storage migration stopped, it resumes where it left off on the next run", e);
+        }
+    }
+
+    private int migrateParts() {
+        String prefix = layout.blobs().toString();
+        int migrated = 0;
+        int lastId = 0;
+        List<LegacyFile> batch;
+        do {
+            batch = jdbcTemplate.query(FIND_PARTS, (rs, rowNum) -> new LegacyFile(rs.getInt("id"), rs.getString("path")),
+                    prefix, lastId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).id();
+            // hashed before the transaction, so it only spans the renames in the database
+            List<HashedFile> hashed = new ArrayList<>(batch.size());
+            for (LegacyFile file : batch) {
+                Path path = Paths.get(file.path());
+                if (!Files.isRegularFile(path)) {
+                    log.warn(String.format("Part %d points at missing file: %s", file.id(), file.path()));
+                    continue;
+                }
+                try {
+                    hashed.add(new HashedFile(file, DigestingCopy.hash(path)));
+                } catch (IOException e) {
+                    log.warn(String.format("Failed to read file of part %d: %s", file.id(), file.path()), e);
+                }
+            }
+            Integer moved = transactionTemplate.execute(status -> {
+                int count = 0;
+                for (HashedFile file : hashed) {
+                    String blob;
+                    try {
+                        blob = contentStore.importFile(Paths.get(file.legacy().path()), file.hashed(), extension(file.legacy().path())).path();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (jdbcTemplate.update("update part set path = ? where id = ? and path = ?",
+                            blob, file.legacy().id(), file.legacy().path()) > 0) {
+                        count++;
+                    } else {
+                        // edited since it was read, the new file is already stored
+                        contentStore.release(blob);
+                    }
+                }
+                return count;
+            });
+            migrated += moved == null ? 0 : moved;
+            for (HashedFile file : hashed) {
+                deleteIfUnreferenced(file.legacy().path());
+            }
+        } while (batch.size() == batchSize);
+        return migrated;
+    }
+
+    private int migrateSubmissions() {
+        String prefix = layout.submissions().toString();
+        int migrated = 0;
+        int lastId = 0;
+        List<LegacyFile> batch;
+        do {
+            batch = jdbcTemplate.query(FIND_SUBMISSIONS, (rs, rowNum) -> new LegacyFile(rs.getInt("id"), rs.getString("path")),
+                    prefix, lastId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).id();
+            List<LegacyFile> legacy = new ArrayList<>(batch.size());
+            List<Path> targets = new ArrayList<>(batch.size());
+            for (LegacyFile file : batch) {
+                Path path = Paths.get(file.path());
+                Path target = layout.newSubmission(extension(file.path()));
+                try {
+                    Files.createDirectories(target.getParent());
+                    StorageLayout.linkOrCopy(path, target);
+                    legacy.add(file);
+                    targets.add(target);
+                } catch (IOException e) {
+                    log.warn(String.format("Failed to move submission %d: %s", file.id(), file.path()), e);
+                }
+            }
+            int[] updated = transactionTemplate.execute(status -> {
+                int[] counts = new int[legacy.size()];
+                for (int i = 0; i < legacy.size(); i++) {
+                    counts[i] = jdbcTemplate.update("update submission set path = ? where id = ? and path = ?",
+                            targets.get(i).toString(), legacy.get(i).id(), legacy.get(i).path());
+                }
+                return counts;
+            });
+            for (int i = 0; i < legacy.size(); i++) {
+                boolean moved = updated != null && updated[i] > 0;
+                if (moved) {
+                    migrated++;
+                }
+                // a submission replaced in the meantime keeps its new file and the copy goes instead
+                Path obsolete = moved ? Paths.get(legacy.get(i).path()) : targets.get(i);
+                try {
+                    Files.deleteIfExists(obsolete);
+                } catch (IOException e) {
+                    log.warn(String.format("Failed to delete file: %s", obsolete), e);
+                }
+            }
+        } while (batch.size() == batchSize);
+        return migrated;
+    }
+
+    /**
+     * Two parts can share a legacy path when their uploads landed in the same millisecond, so the file
+     * stays until no part points at it any more.
+     */
+    private void deleteIfUnreferenced(String path) {
+        Integer references = jdbcTemplate.queryForObject("select count(*) from part where path = ?", Integer.class, path);
+        if (references != null && references > 0) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(path));
+        } catch (IOException e) {
+            log.warn(String.format("Failed to delete file: %s", path), e);
+        }
+    }
+
+    private static String extension(String path) {
+        return StorageLayout.extension(Paths.get(path).getFileName().toString());
+    }
+
+    private record LegacyFile(Integer id, String path) {
+    }
+
+    private record HashedFile(LegacyFile legacy, StoredFile hashed) {
+    }
+}
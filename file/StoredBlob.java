@@ -0,0 +1,31 @@
+package com.mchis.file;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A file of the content store, shared by every part whose path points at it. Written through {@link BlobRepository}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class StoredBlob {
+    // hex encoded SHA-256 of the content followed by the file extension, also the blob's file name
+    @Id
+    private String id;
+    private String sha256;
+    private long size;
+    // number of FileUpload and Assignment paths pointing at the blob
+    private int refCount;
+    private LocalDateTime createdAt;
+    // when a reference was last being added, the row is the lease that keeps OrphanFileSweeper off the file
+    private LocalDateTime touchedAt;
+}
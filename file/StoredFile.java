@@ -0,0 +1,8 @@
+package com.mchis.file;
+
+public record StoredFile(
+        String path,
+        long size,
+        String sha256
+) {
+}
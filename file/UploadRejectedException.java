@@ -0,0 +1,22 @@
+package com.mchis.file;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * A client error of the resumable upload protocol, answered with its status so the client can tell a chunk to resend
+ * or a request to retry later from a server fault.
+ */
+public class UploadRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+
+    public UploadRejectedException(HttpStatus status, String msg) {
+        super(msg);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,89 @@
+package com.mchis.file;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * State of one chunked upload, kept in the database so an upload survives a restart and its chunks may reach any
+ * node. Chunks are written straight into a file preallocated to the full size, so they may arrive in any order and
+ * in parallel; the session only tracks which of them are complete. Written through {@link UploadSessionRepository}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class UploadSession {
+    @Id
+    private String id;
+    private Integer userId;
+    private Integer courseId;
+    private Integer sectionId;
+    private String title;
+    private String name;
+    private String fileName;
+    private long size;
+    private int chunkSize;
+    private String path;
+    // one bit per chunk, bit i of byte i / 8 counted from the least significant, as BitSet.valueOf and set_bit read it
+    private byte[] received;
+    // chunk writes in flight, completing waits for them so no write lands after the file was hashed
+    private int writing;
+    private boolean completing;
+    private LocalDateTime lastActivity;
+
+    int chunkCount() {
+        return chunkCount(size, chunkSize);
+    }
+
+    static int chunkCount(long size, int chunkSize) {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Returns the index of the chunk starting at the offset, which must be a chunk boundary.
+     */
+    int chunkAt(long offset) {
+        if (offset < 0 || offset >= size || offset % chunkSize != 0) {
+            throw new UploadRejectedException(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, String.format("Offset %d of upload %s is not the start of a chunk of %d bytes",
+                    offset, id, chunkSize));
+        }
+        return (int) (offset / chunkSize);
+    }
+
+    long chunkLength(int index) {
+        return Math.min(chunkSize, size - (long) index * chunkSize);
+    }
+
+    int missingChunks() {
+        return chunkCount() - BitSet.valueOf(received).cardinality();
+    }
+
+    UploadSessionResponse toResponse(long ttlMillis) {
+        BitSet chunks = BitSet.valueOf(received);
+        int chunkCount = chunkCount();
+        long receivedBytes = 0;
+        List<Long> missing = new ArrayList<>(chunkCount - chunks.cardinality());
+        for (int i = 0; i < chunkCount; i++) {
+            if (chunks.get(i)) {
+                receivedBytes += chunkLength(i);
+            } else {
+                missing.add((long) i * chunkSize);
+            }
+        }
+        LocalDateTime expiresAt = lastActivity.plus(Duration.ofMillis(ttlMillis));
+        return new UploadSessionResponse(id, courseId, sectionId, fileName, size, chunkSize, chunkCount,
+                receivedBytes, missing, expiresAt);
+    }
+}
@@ -0,0 +1,104 @@
+package com.mchis.file;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Changes {@link UploadSession}s with single conditional statements, so nodes serving chunks of the same upload
+ * never overwrite each other's progress and a chunk write and the completion of its upload exclude each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UploadSessionRepository {
+    private static final RowMapper<UploadSession> ROW = (rs, rowNum) -> UploadSession.builder()
+            .id(rs.getString("id"))
+            .userId(rs.getInt("user_id"))
+            .courseId(rs.getInt("course_id"))
+            .sectionId(rs.getInt("section_id"))
+            .title(rs.getString("title"))
+            .name(rs.getString("name"))
+            .fileName(rs.getString("file_name"))
+            .size(rs.getLong("size"))
+            .chunkSize(rs.getInt("chunk_size"))
+            .path(rs.getString("path"))
+            .received(rs.getBytes("received"))
+            .writing(rs.getInt("writing"))
+            .completing(rs.getBoolean("completing"))
+            .lastActivity(rs.getObject("last_activity", LocalDateTime.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(UploadSession session) {
+        jdbcTemplate.update("insert into upload_session (id, user_id, course_id, section_id, title, name, file_name, size, "
+                        + "chunk_size, path, received, writing, completing, last_activity) "
+                        + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, false, now())",
+                session.getId(), session.getUserId(), session.getCourseId(), session.getSectionId(), session.getTitle(),
+                session.getName(), session.getFileName(), session.getSize(), session.getChunkSize(), session.getPath(),
+                session.getReceived());
+    }
+
+    public Optional<UploadSession> findById(String id) {
+        return jdbcTemplate.query("select * from upload_session where id = ?", ROW, id).stream().findFirst();
+    }
+
+    /**
+     * Counts a chunk write in, returns false if the upload is being completed or gone.
+     */
+    public boolean beginWrite(String id) {
+        return jdbcTemplate.update("update upload_session set writing = writing + 1, last_activity = now() "
+                + "where id = ? and not completing", id) > 0;
+    }
+
+    /**
+     * Counts a chunk write out, marking the chunk received if all of it was written, and returns the session.
+     */
+    public Optional<UploadSession> endWrite(String id, int index, boolean written) {
+        return jdbcTemplate.query("update upload_session set writing = greatest(writing - 1, 0), "
+                + "received = case when ? then set_bit(received, ?, 1) else received end, last_activity = now() "
+                + "where id = ? returning *", ROW, written, index, id).stream().findFirst();
+    }
+
+    /**
+     * Marks the upload as being completed unless it already is or a chunk is being written. A write counted in by
+     * a node that stopped before counting it out no longer blocks once the session was idle since the cutoff.
+     */
+    public boolean beginComplete(String id, LocalDateTime staleWriteCutoff) {
+        return jdbcTemplate.update("update upload_session set completing = true, last_activity = now() "
+                + "where id = ? and not completing and (writing = 0 or last_activity < ?)", id, staleWriteCutoff) > 0;
+    }
+
+    public void abortComplete(String id) {
+        jdbcTemplate.update("update upload_session set completing = false, writing = 0, last_activity = now() where id = ?", id);
+    }
+
+    public void delete(String id) {
+        jdbcTemplate.update("delete from upload_session where id = ?", id);
+    }
+
+    /**
+     * Removes the session unless it is being completed, returns whether it did.
+     */
+    public boolean deleteUnlessCompleting(String id) {
+        return jdbcTemplate.update("delete from upload_session where id = ? and not completing", id) > 0;
+    }
+
+    /**
+     * Removes the sessions that saw no activity since the cutoff and returns the paths of their files.
+     */
+    public List<String> deleteIdleSince(LocalDateTime cutoff) {
+        return jdbcTemplate.queryForList("delete from upload_session where last_activity < ? returning path", String.class, cutoff);
+    }
+
+    public Set<String> findPaths() {
+        return new HashSet<>(jdbcTemplate.queryForList("select path from upload_session", String.class));
+    }
+}
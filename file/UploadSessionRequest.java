@@ -0,0 +1,9 @@
+package com.mchis.file;
+
+public record UploadSessionRequest(
+        String title,
+        String name,
+        String fileName,
+        long size
+) {
+}
@@ -0,0 +1,18 @@
+package com.mchis.file;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record UploadSessionResponse(
+        String id,
+        Integer courseId,
+        Integer sectionId,
+        String fileName,
+        long size,
+        int chunkSize,
+        int chunkCount,
+        long receivedBytes,
+        List<Long> missingOffsets,
+        LocalDateTime expiresAt
+) {
+}
@@ -0,0 +1,12 @@
+package com.mchis.grading;
+
+import java.util.List;
+
+public record BulkGradingReport(
+        int total,
+        int graded,
+        int regraded,
+        int rejected,
+        List<GradeRowResult> rows
+) {
+}
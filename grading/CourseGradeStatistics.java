@@ -0,0 +1,10 @@
+package com.mchis.grading;
+
+import java.util.Map;
+
+public record CourseGradeStatistics(
+        Integer courseId,
+        GradeStatistics overall,
+        Map<Integer, GradeStatistics> assignments
+) {
+}
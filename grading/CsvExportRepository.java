@@ -0,0 +1,51 @@
+package com.mchis.grading;
+
+import com.mchis.enrollment.EnrollmentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Runs the export queries on forward-only, read-only cursors and hands each row to the caller as it arrives.
+ * Callers must hold a transaction, otherwise the driver ignores the fetch size and buffers the whole result.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CsvExportRepository {
+    private static final int FETCH_SIZE = 2048;
+
+    private static final String ROSTER = "select u.id, u.firstname, u.lastname, u.email from " + EnrollmentRepository.TABLE + " e "
+            + "join _user u on u.id = e." + EnrollmentRepository.USER_COLUMN + " "
+            + "where e." + EnrollmentRepository.COURSE_COLUMN + " = ? order by u.id";
+    private static final String GRADES = """
+            select u.id, u.email, p.id, p.title, g.grade from assignment_grade g
+            join part p on p.id = g.assignment_id
+            join section s on s.id = p.section_id
+            join _user u on u.id = g.student_id
+            where s.course_id = ?
+            order by u.id, p.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void forEachRosterRow(Integer courseId, RowCallbackHandler handler) {
+        stream(ROSTER, courseId, handler);
+    }
+
+    public void forEachGradeRow(Integer courseId, RowCallbackHandler handler) {
+        stream(GRADES, courseId, handler);
+    }
+
+    private void stream(String sql, Integer courseId, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setInt(1, courseId);
+            return statement;
+        }, handler);
+    }
+}
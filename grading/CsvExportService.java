@@ -0,0 +1,72 @@
+package com.mchis.grading;
+
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.user.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Streams course rosters and grades as CSV from a database cursor straight to the response, one row at a time.
+ */
+@Service
+@RequiredArgsConstructor
+public class CsvExportService {
+    private final CsvExportRepository csvExportRepository;
+    private final CourseMembershipIndex membershipIndex;
+
+    public void checkExportAllowed(Integer courseId, Authentication authentication) throws OperationNotPermittedException {
+        membershipIndex.requireTeacher((User) authentication.getPrincipal(), courseId);
+    }
+
+    @Transactional(readOnly = true)
+    public void writeRoster(Integer courseId, OutputStream outputStream) throws IOException {
+        CsvWriter csv = writer(outputStream);
+        csv.row("student_id", "firstname", "lastname", "email");
+        try {
+            csvExportRepository.forEachRosterRow(courseId, rs -> write(csv,
+                    rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        csv.flush();
+    }
+
+    @Transactional(readOnly = true)
+    public void writeGrades(Integer courseId, OutputStream outputStream) throws IOException {
+        CsvWriter csv = writer(outputStream);
+        csv.row("student_id", "email", "assignment_id", "assignment_title", "grade");
+        try {
+            csvExportRepository.forEachGradeRow(courseId, rs -> {
+                float grade = rs.getFloat(5);
+                write(csv, rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getString(4), rs.wasNull() ? null : grade);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        csv.flush();
+    }
+
+    private static CsvWriter writer(OutputStream outputStream) {
+        return new CsvWriter(new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8)));
+    }
+
+    private static void write(CsvWriter csv, Object... fields) {
+        try {
+            csv.row(fields);
+        } catch (IOException e) {
+            // a client that went away aborts the cursor instead of draining it
+            throw new UncheckedIOException(e);
+        }
+    }
+}
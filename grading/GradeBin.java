@@ -0,0 +1,8 @@
+package com.mchis.grading;
+
+public record GradeBin(
+        float lower,
+        float upper,
+        long count
+) {
+}
@@ -0,0 +1,96 @@
+package com.mchis.grading;
+
+import com.mchis.assignment.AssignmentGrade;
+import com.mchis.assignment.GradingAssignmentRequest;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@code AssignmentGrade} rows directly, keyed by the (student_id, assignment_id) unique constraint.
+ */
+@Repository
+@RequiredArgsConstructor
+public class GradeRepository {
+    private static final String UPDATE = "update assignment_grade set grade = ? where student_id = ? and assignment_id = ?";
+    // a concurrent grader may insert the row between our update and insert, the conflict clause turns that into an update
+    private static final String INSERT = "insert into assignment_grade (id, grade, student_id, assignment_id) "
+            + "values (?, ?, ?, ?) "
+            + "on conflict (student_id, assignment_id) do update set grade = excluded.grade";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    /**
+     * Returns the current grades of the given students for the assignment, keyed by student id.
+     */
+    public Map<Integer, Float> findGrades(Integer assignmentId, Collection<Integer> studentIds) {
+        Map<Integer, Float> grades = new HashMap<>();
+        if (studentIds.isEmpty()) {
+            return grades;
+        }
+        jdbcTemplate.query("select student_id, grade from assignment_grade where assignment_id = ? and student_id = any (?)",
+                (RowCallbackHandler) rs -> {
+                    float grade = rs.getFloat(2);
+                    if (!rs.wasNull()) {
+                        grades.put(rs.getInt(1), grade);
+                    }
+                }, assignmentId, new SqlArrayValue("integer", studentIds.toArray()));
+        return grades;
+    }
+
+    /**
+     * Upserts the grades in two JDBC batches, updates first so that ids are only drawn for new rows.
+     * Returns, per grade, whether a new row was inserted. Must run in a transaction.
+     */
+    public boolean[] upsertAll(Integer assignmentId, List<GradingAssignmentRequest> grades) {
+        boolean[] inserted = new boolean[grades.size()];
+        int[] updated = flatten(jdbcTemplate.batchUpdate(UPDATE, grades, grades.size(), (ps, grade) -> {
+            ps.setFloat(1, grade.grade());
+            ps.setInt(2, grade.studentId());
+            ps.setInt(3, assignmentId);
+        }), grades.size());
+        List<GradingAssignmentRequest> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(grades.get(i));
+                inserted[i] = true;
+            }
+        }
+        if (!missing.isEmpty()) {
+            SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+            IdentifierGenerator ids = (IdentifierGenerator) session.getFactory().getMappingMetamodel()
+                    .getEntityDescriptor(AssignmentGrade.class).getGenerator();
+            jdbcTemplate.batchUpdate(INSERT, missing, missing.size(), (ps, grade) -> {
+                // drawn from the entity's pooled generator, a raw nextval would skip a whole allocation block per row
+                ps.setInt(1, (Integer) ids.generate(session, null));
+                ps.setFloat(2, grade.grade());
+                ps.setInt(3, grade.studentId());
+                ps.setInt(4, assignmentId);
+            });
+        }
+        return inserted;
+    }
+
+    private static int[] flatten(int[][] counts, int size) {
+        int[] result = new int[size];
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                result[index++] = count;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,8 @@
+package com.mchis.grading;
+
+public record GradeRowResult(
+        int row,
+        String student,
+        GradeStatus status
+) {
+}
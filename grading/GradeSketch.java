@@ -0,0 +1,116 @@
+package com.mchis.grading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable summary of a multiset of grades. Grades are counted per value rounded to {@link #SCALE},
+ * which keeps the sketch exact at that precision, small (one entry per distinct grade) and,
+ * unlike a quantile sketch, able to forget a grade when it is edited or deleted.
+ */
+class GradeSketch {
+    private static final int SCALE = 100;
+    private static final int HISTOGRAM_BINS = 10;
+
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long count;
+    private double sum;
+    private double sumOfSquares;
+
+    synchronized void add(float grade) {
+        counts.merge(quantize(grade), 1L, Long::sum);
+        count++;
+        sum += grade;
+        sumOfSquares += (double) grade * grade;
+    }
+
+    synchronized void remove(float grade) {
+        Integer key = quantize(grade);
+        Long current = counts.get(key);
+        if (current == null) {
+            return;
+        }
+        if (current == 1) {
+            counts.remove(key);
+        } else {
+            counts.put(key, current - 1);
+        }
+        count--;
+        sum -= grade;
+        sumOfSquares -= (double) grade * grade;
+        if (count == 0) {
+            // drop the rounding residue of the running sums
+            sum = 0;
+            sumOfSquares = 0;
+        }
+    }
+
+    synchronized void mergeInto(GradeSketch target) {
+        // always lock this sketch before the target, callers merge into a fresh local sketch
+        synchronized (target) {
+            counts.forEach((key, value) -> target.counts.merge(key, value, Long::sum));
+            target.count += count;
+            target.sum += sum;
+            target.sumOfSquares += sumOfSquares;
+        }
+    }
+
+    synchronized GradeStatistics statistics() {
+        if (count == 0) {
+            return new GradeStatistics(0, null, null, null, null, null, null, List.of());
+        }
+        double mean = sum / count;
+        double variance = Math.max(0, sumOfSquares / count - mean * mean);
+        float min = value(counts.firstKey());
+        float max = value(counts.lastKey());
+        return new GradeStatistics(
+                count,
+                mean,
+                Math.sqrt(variance),
+                min,
+                max,
+                quantile(0.5),
+                quantile(0.9),
+                histogram(min, max)
+        );
+    }
+
+    /**
+     * Nearest-rank quantile over the rounded values.
+     */
+    private float quantile(double q) {
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= rank) {
+                return value(entry.getKey());
+            }
+        }
+        return value(counts.lastKey());
+    }
+
+    private List<GradeBin> histogram(float min, float max) {
+        long[] bins = new long[HISTOGRAM_BINS];
+        float width = (max - min) / HISTOGRAM_BINS;
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            int bin = width == 0 ? 0 : (int) ((value(entry.getKey()) - min) / width);
+            bins[Math.min(bin, HISTOGRAM_BINS - 1)] += entry.getValue();
+        }
+        List<GradeBin> histogram = new ArrayList<>(HISTOGRAM_BINS);
+        for (int i = 0; i < HISTOGRAM_BINS; i++) {
+            histogram.add(new GradeBin(min + i * width, i == HISTOGRAM_BINS - 1 ? max : min + (i + 1) * width, bins[i]));
+        }
+        return histogram;
+    }
+
+    private static Integer quantize(float grade) {
+        return Math.round(grade * SCALE);
+    }
+
+    private static float value(int key) {
+        return (float) key / SCALE;
+    }
+}
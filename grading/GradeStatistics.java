@@ -0,0 +1,15 @@
+package com.mchis.grading;
+
+import java.util.List;
+
+public record GradeStatistics(
+        long count,
+        Double mean,
+        Double stddev,
+        Float min,
+        Float max,
+        Float median,
+        Float p90,
+        List<GradeBin> histogram
+) {
+}
@@ -0,0 +1,219 @@
+package com.mchis.grading;
+
+import com.mchis.assignment.AssignmentRepository;
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.user.User;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Live grade statistics per assignment, kept as one {@link GradeSketch} per assignment and updated by the
+ * grade mutations after they commit. Course statistics are merged from the sketches of the course's assignments.
+ * <p>
+ * A rebuild scans under a repeatable read snapshot and remembers it. An update whose transaction that snapshot
+ * already saw is dropped, otherwise a grade committed just before the scan would be counted twice once its
+ * after-commit update gets past the rebuild.
+ */
+@Service
+@Slf4j
+public class GradeStatisticsService {
+    private static final Object TRANSACTION_ID_KEY = new Object();
+
+    private final Map<Integer, GradeSketch> sketches = new ConcurrentHashMap<>();
+    // updates share the lock, a rebuild takes it exclusively so no update is lost between scan and swap
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // snapshots of the latest rebuilds, of everything and per assignment, guarded by the lock
+    private volatile TransactionSnapshot rebuiltAll;
+    private final Map<Integer, TransactionSnapshot> rebuiltAssignments = new ConcurrentHashMap<>();
+
+    private final GradebookRepository gradebookRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final CourseMembershipIndex membershipIndex;
+    private final TransactionTemplate scanTransactionTemplate;
+
+    public GradeStatisticsService(
+            GradebookRepository gradebookRepository,
+            AssignmentRepository assignmentRepository,
+            CourseMembershipIndex membershipIndex,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.gradebookRepository = gradebookRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.membershipIndex = membershipIndex;
+        this.scanTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.scanTransactionTemplate.setReadOnly(true);
+        // one snapshot for the whole scan, so it is exactly what the recorded snapshot says it saw
+        this.scanTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+        lock.writeLock().lock();
+        try {
+            Scan scan = scan(null);
+            sketches.clear();
+            sketches.putAll(scan.sketches());
+            rebuiltAssignments.clear();
+            rebuiltAll = scan.snapshot();
+            log.info(String.format("Built grade statistics of %d assignments", scan.sketches().size()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that a student's grade of the assignment changed from {@code oldGrade} to {@code newGrade},
+     * either of which is null when the grade did not exist before or was deleted.
+     */
+    public void gradeChanged(Integer assignmentId, Float oldGrade, Float newGrade) {
+        Long transactionId = transactionId();
+        afterCommit(() -> update(() -> {
+            if (transactionId != null && coveredByRebuild(assignmentId, transactionId)) {
+                return;
+            }
+            GradeSketch sketch = sketches.computeIfAbsent(assignmentId, id -> new GradeSketch());
+            if (oldGrade != null) {
+                sketch.remove(oldGrade);
+            }
+            if (newGrade != null) {
+                sketch.add(newGrade);
+            }
+        }));
+    }
+
+    public void assignmentDeleted(Integer assignmentId) {
+        afterCommit(() -> update(() -> sketches.remove(assignmentId)));
+    }
+
+    public GradeStatistics getAssignmentStatistics(
+            Integer courseId,
+            Integer sectionId,
+            Integer partId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        checkTeacher(authentication, courseId);
+        if (!assignmentRepository.existsByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)) {
+            throw new EntityNotFoundException(String.format("Part with id %d in section %d in course %d not found", partId, sectionId, courseId));
+        }
+        GradeSketch sketch = sketches.get(partId);
+        return sketch == null ? new GradeSketch().statistics() : sketch.statistics();
+    }
+
+    public CourseGradeStatistics getCourseStatistics(Integer courseId, Authentication authentication) throws OperationNotPermittedException {
+        checkTeacher(authentication, courseId);
+        int[] assignmentIds = gradebookRepository.findAssignmentIds(courseId);
+        GradeSketch overall = new GradeSketch();
+        Map<Integer, GradeStatistics> assignments = new LinkedHashMap<>();
+        for (int assignmentId : assignmentIds) {
+            GradeSketch sketch = sketches.getOrDefault(assignmentId, new GradeSketch());
+            sketch.mergeInto(overall);
+            assignments.put(assignmentId, sketch.statistics());
+        }
+        return new CourseGradeStatistics(courseId, overall.statistics(), assignments);
+    }
+
+    /**
+     * Recomputes the sketches of the course's assignments from the stored grades.
+     */
+    public CourseGradeStatistics rebuild(Integer courseId, Authentication authentication) throws OperationNotPermittedException {
+        checkTeacher(authentication, courseId);
+        lock.writeLock().lock();
+        try {
+            Scan scan = scan(courseId);
+            for (int assignmentId : gradebookRepository.findAssignmentIds(courseId)) {
+                sketches.put(assignmentId, scan.sketches().getOrDefault(assignmentId, new GradeSketch()));
+                rebuiltAssignments.put(assignmentId, scan.snapshot());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return getCourseStatistics(courseId, authentication);
+    }
+
+    private Scan scan(Integer courseId) {
+        Map<Integer, GradeSketch> rebuilt = new HashMap<>();
+        String snapshot = scanTransactionTemplate.execute(status -> {
+            String current = gradebookRepository.currentSnapshot();
+            gradebookRepository.forEachAssignmentGrade(courseId,
+                    (assignmentId, grade) -> rebuilt.computeIfAbsent(assignmentId, id -> new GradeSketch()).add(grade));
+            return current;
+        });
+        return new Scan(rebuilt, TransactionSnapshot.parse(snapshot));
+    }
+
+    private boolean coveredByRebuild(Integer assignmentId, long transactionId) {
+        TransactionSnapshot all = rebuiltAll;
+        if (all != null && all.covers(transactionId)) {
+            return true;
+        }
+        TransactionSnapshot assignment = rebuiltAssignments.get(assignmentId);
+        return assignment != null && assignment.covers(transactionId);
+    }
+
+    /**
+     * Returns the id of the surrounding grade transaction, fetched once per transaction, or null outside one.
+     */
+    private Long transactionId() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        Long transactionId = (Long) TransactionSynchronizationManager.getResource(TRANSACTION_ID_KEY);
+        if (transactionId == null) {
+            transactionId = gradebookRepository.currentTransactionId();
+            TransactionSynchronizationManager.bindResource(TRANSACTION_ID_KEY, transactionId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_ID_KEY);
+                }
+            });
+        }
+        return transactionId;
+    }
+
+    private void checkTeacher(Authentication authentication, Integer courseId) throws OperationNotPermittedException {
+        membershipIndex.requireTeacher((User) authentication.getPrincipal(), courseId);
+    }
+
+    private void update(Runnable change) {
+        lock.readLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Scan(Map<Integer, GradeSketch> sketches, TransactionSnapshot snapshot) {
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
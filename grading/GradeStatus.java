@@ -0,0 +1,8 @@
+package com.mchis.grading;
+
+public enum GradeStatus {
+    GRADED,
+    REGRADED,
+    NOT_ENROLLED,
+    INVALID
+}
@@ -0,0 +1,15 @@
+package com.mchis.grading;
+
+/**
+ * Students x assignments grade matrix of a course. {@code grades} is row-major, one row per student,
+ * and {@code missing} is a base64 little-endian bitmap over the same cells (bit i is bit i % 8 of byte i / 8)
+ * with trailing zero bytes omitted, marking the cells without a grade, which hold 0 in {@code grades}.
+ */
+public record Gradebook(
+        Integer courseId,
+        int[] studentIds,
+        int[] assignmentIds,
+        float[] grades,
+        String missing
+) {
+}
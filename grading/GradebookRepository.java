@@ -0,0 +1,107 @@
+package com.mchis.grading;
+
+import com.mchis.enrollment.EnrollmentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Reads the gradebook of a course as primitive columns, never materializing grade entities.
+ */
+@Repository
+@RequiredArgsConstructor
+public class GradebookRepository {
+    private static final int FETCH_SIZE = 4096;
+    private static final String ASSIGNMENTS = """
+            select p.id from part p join section s on s.id = p.section_id
+            where s.course_id = ? and p.dtype = 'Assignment'
+            order by p.id
+            """;
+    private static final String STUDENTS = "select " + EnrollmentRepository.USER_COLUMN + " from " + EnrollmentRepository.TABLE
+            + " where " + EnrollmentRepository.COURSE_COLUMN + " = ? order by " + EnrollmentRepository.USER_COLUMN;
+    private static final String GRADES = """
+            select g.student_id, g.assignment_id, g.grade from assignment_grade g
+            join part p on p.id = g.assignment_id
+            join section s on s.id = p.section_id
+            where s.course_id = ?
+            """;
+
+    private static final String ASSIGNMENT_GRADES = "select g.assignment_id, g.grade from assignment_grade g where g.grade is not null";
+    private static final String COURSE_ASSIGNMENT_GRADES = """
+            select g.assignment_id, g.grade from assignment_grade g
+            join part p on p.id = g.assignment_id
+            join section s on s.id = p.section_id
+            where s.course_id = ? and g.grade is not null
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int[] findAssignmentIds(Integer courseId) {
+        return jdbcTemplate.queryForList(ASSIGNMENTS, Integer.class, courseId).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int[] findStudentIds(Integer courseId) {
+        return jdbcTemplate.queryForList(STUDENTS, Integer.class, courseId).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Streams the (student, assignment, grade) tuples of the course, must run inside a transaction
+     * for the driver to honour the fetch size.
+     */
+    public void forEachGrade(Integer courseId, GradeConsumer consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(GRADES);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setInt(1, courseId);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            float grade = rs.getFloat(3);
+            if (!rs.wasNull()) {
+                consumer.accept(rs.getInt(1), rs.getInt(2), grade);
+            }
+        });
+    }
+
+    /**
+     * Streams the (assignment, grade) pairs of one course, or of all courses when {@code courseId} is null.
+     * Must run inside a transaction for the driver to honour the fetch size.
+     */
+    public void forEachAssignmentGrade(Integer courseId, AssignmentGradeConsumer consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(courseId == null ? ASSIGNMENT_GRADES : COURSE_ASSIGNMENT_GRADES);
+            statement.setFetchSize(FETCH_SIZE);
+            if (courseId != null) {
+                statement.setInt(1, courseId);
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getInt(1), rs.getFloat(2)));
+    }
+
+    /**
+     * Returns the id of the calling transaction, assigning one if it has none yet.
+     */
+    public long currentTransactionId() {
+        Long id = jdbcTemplate.queryForObject("select txid_current()", Long.class);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Returns the snapshot of the calling transaction, the snapshot of all its queries under repeatable read.
+     */
+    public String currentSnapshot() {
+        return jdbcTemplate.queryForObject("select txid_current_snapshot()::text", String.class);
+    }
+
+    @FunctionalInterface
+    public interface AssignmentGradeConsumer {
+        void accept(int assignmentId, float grade);
+    }
+
+    @FunctionalInterface
+    public interface GradeConsumer {
+        void accept(int studentId, int assignmentId, float grade);
+    }
+}
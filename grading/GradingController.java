@@ -0,0 +1,115 @@
+package com.mchis.grading;
+
+import com.mchis.exception.OperationNotPermittedException;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("courses")
+@Tag(name = "Grading")
+public class GradingController {
+    private final GradingService gradingService;
+    private final GradeStatisticsService gradeStatisticsService;
+    private final CsvExportService csvExportService;
+
+    @GetMapping("/teach/{course-id}/gradebook")
+    public ResponseEntity<Gradebook> getGradebook(
+            @PathVariable("course-id") Integer courseId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.ok(gradingService.getGradebook(courseId, authentication));
+    }
+
+    @GetMapping(value = "/teach/{course-id}/export/roster", produces = "text/csv")
+    public void exportRoster(
+            @PathVariable("course-id") Integer courseId,
+            Authentication authentication,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        csvExportService.checkExportAllowed(courseId, authentication);
+        csv(String.format("course-%d-roster.csv", courseId), response);
+        csvExportService.writeRoster(courseId, response.getOutputStream());
+    }
+
+    @GetMapping(value = "/teach/{course-id}/export/grades", produces = "text/csv")
+    public void exportGrades(
+            @PathVariable("course-id") Integer courseId,
+            Authentication authentication,
+            HttpServletResponse response
+    ) throws OperationNotPermittedException, IOException {
+        csvExportService.checkExportAllowed(courseId, authentication);
+        csv(String.format("course-%d-grades.csv", courseId), response);
+        csvExportService.writeGrades(courseId, response.getOutputStream());
+    }
+
+    @GetMapping("/teach/{course-id}/statistics")
+    public ResponseEntity<CourseGradeStatistics> getCourseStatistics(
+            @PathVariable("course-id") Integer courseId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.ok(gradeStatisticsService.getCourseStatistics(courseId, authentication));
+    }
+
+    @PostMapping("/teach/{course-id}/statistics/rebuild")
+    public ResponseEntity<CourseGradeStatistics> rebuildCourseStatistics(
+            @PathVariable("course-id") Integer courseId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.ok(gradeStatisticsService.rebuild(courseId, authentication));
+    }
+
+    @GetMapping("/teach/{course-id}/sections/{section-id}/assignments/{part-id}/statistics")
+    public ResponseEntity<GradeStatistics> getAssignmentStatistics(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.ok(gradeStatisticsService.getAssignmentStatistics(courseId, sectionId, partId, authentication));
+    }
+
+    @PostMapping(value = "/teach/{course-id}/sections/{section-id}/assignments/{part-id}/grades",
+            consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<BulkGradingReport> gradeAll(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            HttpServletRequest request,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        return ResponseEntity.ok(gradingService.gradeAll(
+                courseId,
+                sectionId,
+                partId,
+                request.getInputStream(),
+                MediaType.parseMediaType(request.getContentType()),
+                authentication
+        ));
+    }
+
+    /**
+     * Sets the headers of a CSV export. The body is written on the request thread, as the archives are, so a large
+     * export is not cut off by the MVC async request timeout.
+     */
+    private static void csv(String filename, HttpServletResponse response) {
+        response.setContentType(new MediaType("text", "csv", UTF_8).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString());
+    }
+}
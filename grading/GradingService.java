@@ -0,0 +1,277 @@
+package com.mchis.grading;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mchis.assignment.AssignmentRepository;
+import com.mchis.assignment.GradingAssignmentRequest;
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.enrollment.EnrollmentRepository;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.user.User;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@Service
+@Slf4j
+public class GradingService {
+    private static final int BATCH_SIZE = 500;
+
+    private final GradeRepository gradeRepository;
+    private final GradebookRepository gradebookRepository;
+    private final GradeStatisticsService gradeStatisticsService;
+    private final AssignmentRepository assignmentRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final CourseMembershipIndex membershipIndex;
+    private final JsonFactory jsonFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public GradingService(
+            GradeRepository gradeRepository,
+            GradebookRepository gradebookRepository,
+            GradeStatisticsService gradeStatisticsService,
+            AssignmentRepository assignmentRepository,
+            EnrollmentRepository enrollmentRepository,
+            CourseMembershipIndex membershipIndex,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.gradeRepository = gradeRepository;
+        this.gradebookRepository = gradebookRepository;
+        this.gradeStatisticsService = gradeStatisticsService;
+        this.assignmentRepository = assignmentRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.membershipIndex = membershipIndex;
+        this.jsonFactory = objectMapper.getFactory();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Builds the grade matrix of the course from one pass over its grade tuples. Students and assignments
+     * are sorted by id, so a tuple finds its cell by binary search without boxing.
+     */
+    public Gradebook getGradebook(Integer courseId, Authentication authentication) throws OperationNotPermittedException {
+        User user = (User) authentication.getPrincipal();
+        membershipIndex.requireTeacher(user, courseId);
+        membershipIndex.requireAssistant(user, courseId);
+        return readOnlyTransactionTemplate.execute(status -> {
+            int[] studentIds = gradebookRepository.findStudentIds(courseId);
+            int[] assignmentIds = gradebookRepository.findAssignmentIds(courseId);
+            int columns = assignmentIds.length;
+            float[] grades = new float[Math.multiplyExact(studentIds.length, columns)];
+            BitSet missing = new BitSet(grades.length);
+            missing.set(0, grades.length);
+            gradebookRepository.forEachGrade(courseId, (studentId, assignmentId, grade) -> {
+                int row = Arrays.binarySearch(studentIds, studentId);
+                int column = Arrays.binarySearch(assignmentIds, assignmentId);
+                // grades of students who have since left the course are not part of the matrix
+                if (row >= 0 && column >= 0) {
+                    int cell = row * columns + column;
+                    grades[cell] = grade;
+                    missing.clear(cell);
+                }
+            });
+            return new Gradebook(courseId, studentIds, assignmentIds, grades,
+                    Base64.getEncoder().encodeToString(missing.toByteArray()));
+        });
+    }
+
+    /**
+     * Grades an assignment from (studentId, grade) pairs, given as CSV or as a JSON array of objects,
+     * validating and upserting them in batches so the sheet is never held in memory as a whole.
+     */
+    public BulkGradingReport gradeAll(
+            Integer courseId,
+            Integer sectionId,
+            Integer partId,
+            InputStream sheet,
+            MediaType contentType,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        User user = (User) authentication.getPrincipal();
+        membershipIndex.requireTeacher(user, courseId);
+        membershipIndex.requireAssistant(user, courseId);
+        if (!assignmentRepository.existsByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)) {
+            throw new EntityNotFoundException(String.format("Part with id %d in section %d in course %d not found", partId, sectionId, courseId));
+        }
+        GradeBatch batch = new GradeBatch(courseId, partId);
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            readJson(sheet, batch);
+        } else {
+            readCsv(sheet, batch);
+        }
+        batch.flush();
+        return batch.report();
+    }
+
+    private void readCsv(InputStream sheet, GradeBatch batch) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(sheet, UTF_8));
+        String line;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] values = line.split(",", 3);
+            String student = values[0].trim();
+            String grade = values.length > 1 ? values[1].trim() : "";
+            // a leading line without a numeric student id is a header
+            if (first && parseId(student) == null) {
+                first = false;
+                continue;
+            }
+            first = false;
+            batch.add(student, grade);
+        }
+    }
+
+    private void readJson(InputStream sheet, GradeBatch batch) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(sheet)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Grades must be a JSON array");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    JsonNode node = parser.readValueAsTree();
+                    JsonNode student = node.get("studentId");
+                    JsonNode grade = node.get("grade");
+                    batch.add(student == null ? "" : student.asText(), grade == null ? "" : grade.asText());
+                } else {
+                    parser.skipChildren();
+                    batch.add("", "");
+                }
+            }
+        }
+    }
+
+    private static Integer parseId(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Float parseGrade(String value) {
+        try {
+            float grade = Float.parseFloat(value);
+            return Float.isFinite(grade) ? grade : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private class GradeBatch {
+        private final Integer courseId;
+        private final Integer assignmentId;
+        private final List<String> students = new ArrayList<>(BATCH_SIZE);
+        private final List<String> grades = new ArrayList<>(BATCH_SIZE);
+        private final List<GradeRowResult> rows = new ArrayList<>();
+        private int graded;
+        private int regraded;
+        private int rejected;
+
+        private GradeBatch(Integer courseId, Integer assignmentId) {
+            this.courseId = courseId;
+            this.assignmentId = assignmentId;
+        }
+
+        void add(String student, String grade) {
+            students.add(student);
+            grades.add(grade);
+            if (students.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (students.isEmpty()) {
+                return;
+            }
+            int firstRow = rows.size() + 1;
+            GradeStatus[] statuses = new GradeStatus[students.size()];
+            List<GradingAssignmentRequest> valid = new ArrayList<>(students.size());
+            List<Integer> validRows = new ArrayList<>(students.size());
+            for (int i = 0; i < students.size(); i++) {
+                Integer studentId = parseId(students.get(i));
+                Float grade = parseGrade(grades.get(i));
+                if (studentId == null || grade == null) {
+                    statuses[i] = GradeStatus.INVALID;
+                } else {
+                    valid.add(new GradingAssignmentRequest(studentId, grade));
+                    validRows.add(i);
+                }
+            }
+            if (!valid.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Set<Integer> enrolled = enrollmentRepository.findEnrolled(courseId,
+                            valid.stream().map(GradingAssignmentRequest::studentId).toList());
+                    List<GradingAssignmentRequest> toGrade = new ArrayList<>(valid.size());
+                    List<Integer> toGradeRows = new ArrayList<>(valid.size());
+                    for (int i = 0; i < valid.size(); i++) {
+                        if (enrolled.contains(valid.get(i).studentId())) {
+                            toGrade.add(valid.get(i));
+                            toGradeRows.add(validRows.get(i));
+                        } else {
+                            statuses[validRows.get(i)] = GradeStatus.NOT_ENROLLED;
+                        }
+                    }
+                    if (toGrade.isEmpty()) {
+                        return;
+                    }
+                    Map<Integer, Float> previous = gradeRepository.findGrades(assignmentId,
+                            toGrade.stream().map(GradingAssignmentRequest::studentId).toList());
+                    boolean[] inserted = gradeRepository.upsertAll(assignmentId, toGrade);
+                    for (int i = 0; i < inserted.length; i++) {
+                        GradingAssignmentRequest grade = toGrade.get(i);
+                        statuses[toGradeRows.get(i)] = inserted[i] ? GradeStatus.GRADED : GradeStatus.REGRADED;
+                        // a student listed twice replaces the grade given by the earlier row
+                        gradeStatisticsService.gradeChanged(assignmentId, previous.put(grade.studentId(), grade.grade()), grade.grade());
+                    }
+                });
+            }
+            int rejectedBefore = rejected;
+            for (int i = 0; i < statuses.length; i++) {
+                switch (statuses[i]) {
+                    case GRADED -> graded++;
+                    case REGRADED -> regraded++;
+                    default -> rejected++;
+                }
+                rows.add(new GradeRowResult(firstRow + i, students.get(i), statuses[i]));
+            }
+            log.info(String.format("Graded %d of %d rows of assignment %d",
+                    statuses.length - (rejected - rejectedBefore), statuses.length, assignmentId));
+            students.clear();
+            grades.clear();
+        }
+
+        BulkGradingReport report() {
+            return new BulkGradingReport(rows.size(), graded, regraded, rejected, List.copyOf(rows));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.mchis.grading;
+
+import java.util.Arrays;
+
+/**
+ * A PostgreSQL snapshot as returned by {@code txid_current_snapshot()}, {@code xmin:xmax:xip,...}.
+ * Tells whether the changes of a committed transaction were visible to the queries that ran under it.
+ */
+record TransactionSnapshot(long xmin, long xmax, long[] inProgress) {
+    static TransactionSnapshot parse(String text) {
+        String[] parts = text.split(":", 3);
+        long[] inProgress = parts.length < 3 || parts[2].isEmpty()
+                ? new long[0]
+                : Arrays.stream(parts[2].split(",")).mapToLong(Long::parseLong).sorted().toArray();
+        return new TransactionSnapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+    }
+
+    /**
+     * Returns true if the committed transaction was visible to this snapshot.
+     */
+    boolean covers(long transactionId) {
+        if (transactionId < xmin) {
+            return true;
+        }
+        if (transactionId >= xmax) {
+            return false;
+        }
+        return Arrays.binarySearch(inProgress, transactionId) < 0;
+    }
+}
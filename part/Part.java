@@ -12,13 +12,14 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 @Entity
 @SuperBuilder
+@Table(indexes = @Index(name = "idx_part_section_id", columnList = "section_id"))
 public class Part {
     @Id
     @GeneratedValue
     private Integer id;
     private String title;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "section_id")
     private Section section;
 }
@@ -0,0 +1,13 @@
+package com.mchis.part;
+
+import java.time.LocalDateTime;
+
+public record PartSummary(
+        Integer id,
+        String type,
+        String title,
+        String name,
+        LocalDateTime startTime,
+        LocalDateTime endTime
+) {
+}
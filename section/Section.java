@@ -15,6 +15,7 @@ import java.util.List;
 @NoArgsConstructor
 @Entity
 @Builder
+@Table(indexes = @Index(name = "idx_section_course_id", columnList = "course_id"))
 public class Section {
     @Id
     @GeneratedValue
@@ -22,7 +23,7 @@ public class Section {
     private String name;
     @OneToMany(mappedBy = "section", cascade = CascadeType.REMOVE)
     private List<Part> parts;
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "course_id")
     private Course course;
 
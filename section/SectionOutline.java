@@ -0,0 +1,36 @@
+package com.mchis.section;
+
+import com.mchis.part.PartSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public record SectionOutline(
+        Integer id,
+        String name,
+        List<PartSummary> parts
+) {
+    /**
+     * Groups rows ordered by section id into sections, keeping the row order of the parts.
+     */
+    public static List<SectionOutline> fromRows(List<SectionOutlineRow> rows) {
+        List<SectionOutline> sections = new ArrayList<>();
+        SectionOutlineRow sectionRow = null;
+        List<PartSummary> parts = new ArrayList<>();
+        for (SectionOutlineRow row : rows) {
+            if (sectionRow != null && !Objects.equals(sectionRow.sectionId(), row.sectionId())) {
+                sections.add(new SectionOutline(sectionRow.sectionId(), sectionRow.sectionName(), List.copyOf(parts)));
+                parts = new ArrayList<>();
+            }
+            sectionRow = row;
+            if (row.partId() != null) {
+                parts.add(new PartSummary(row.partId(), row.partType(), row.partTitle(), row.partName(), row.startTime(), row.endTime()));
+            }
+        }
+        if (sectionRow != null) {
+            sections.add(new SectionOutline(sectionRow.sectionId(), sectionRow.sectionName(), List.copyOf(parts)));
+        }
+        return sections;
+    }
+}
@@ -0,0 +1,18 @@
+package com.mchis.section;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the flattened section/part join, parts columns are null for empty sections.
+ */
+public record SectionOutlineRow(
+        Integer sectionId,
+        String sectionName,
+        Integer partId,
+        String partType,
+        String partTitle,
+        String partName,
+        LocalDateTime startTime,
+        LocalDateTime endTime
+) {
+}
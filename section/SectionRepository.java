@@ -1,6 +1,49 @@
 package com.mchis.section;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface SectionRepository extends JpaRepository<Section, Integer> {
+
+    @Query("""
+            select new com.mchis.section.SectionSummary(s.id, s.name)
+            from Section s
+            where s.course.id = :courseId
+            order by s.id
+            """)
+    List<SectionSummary> findSummariesByCourseId(@Param("courseId") Integer courseId);
+
+    @Query("""
+            select new com.mchis.section.SectionOutlineRow(
+                s.id,
+                s.name,
+                p.id,
+                case type(p)
+                    when com.mchis.text.Text then 'TEXT'
+                    when com.mchis.file.FileUpload then 'FILE'
+                    when com.mchis.assignment.Assignment then 'ASSIGNMENT'
+                    else 'PART'
+                end,
+                p.title,
+                coalesce(treat(p as com.mchis.file.FileUpload).name, treat(p as com.mchis.assignment.Assignment).name),
+                treat(p as com.mchis.assignment.Assignment).startTime,
+                treat(p as com.mchis.assignment.Assignment).endTime
+            )
+            from Section s left join s.parts p
+            where s.course.id = :courseId
+            order by s.id, p.id
+            """)
+    List<SectionOutlineRow> findOutlineRowsByCourseId(@Param("courseId") Integer courseId);
+
+    Optional<Section> findByIdAndCourseId(Integer id, Integer courseId);
+
+    @Query("select count(p) from Part p where p.section.id = :sectionId")
+    int countParts(@Param("sectionId") Integer sectionId);
+
+    @Query("select count(p) from Part p where p.section.id = :sectionId and type(p) = com.mchis.assignment.Assignment")
+    int countAssignments(@Param("sectionId") Integer sectionId);
 }
@@ -0,0 +1,7 @@
+package com.mchis.section;
+
+public record SectionSummary(
+        Integer id,
+        String name
+) {
+}
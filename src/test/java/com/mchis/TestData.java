@@ -0,0 +1,55 @@
+package com.mchis;
+
+import com.mchis.course.Course;
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.course.CourseRepository;
+import com.mchis.user.User;
+import com.mchis.user.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Creates users and courses with unique names, so tests can share a database without cleaning up after each other.
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class TestData {
+    private final UserRepository userRepository;
+    private final CourseRepository courseRepository;
+    private final CourseMembershipIndex membershipIndex;
+
+    public User user() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(User.builder()
+                .firstname("Test")
+                .lastname(name)
+                .email(name + "@test.local")
+                .enabled(true)
+                .roles(List.of())
+                .createdDate(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Creates a course and registers it with the membership index, capacity null for no limit.
+     */
+    public Course course(User teacher, Integer capacity) {
+        Course course = courseRepository.save(Course.builder()
+                .name("Course " + UUID.randomUUID())
+                .teacher(teacher)
+                .capacity(capacity)
+                .build());
+        membershipIndex.addCourse(course.getId(), teacher.getId());
+        return course;
+    }
+
+    public static Authentication login(User user) {
+        return new UsernamePasswordAuthenticationToken(user, null, List.of());
+    }
+}
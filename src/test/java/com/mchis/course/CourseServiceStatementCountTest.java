@@ -0,0 +1,91 @@
+package com.mchis.course;
+
+import com.mchis.StatementCounter;
+import com.mchis.TestData;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.section.Section;
+import com.mchis.section.SectionRepository;
+import com.mchis.section.SectionRequest;
+import com.mchis.text.Text;
+import com.mchis.text.TextRepository;
+import com.mchis.text.TextRequest;
+import com.mchis.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.Authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Bounds the statements of single CourseService operations. Membership checks are answered by the index, and the
+ * target is resolved together with its ownership in one query, so an edit is one select and one update.
+ */
+@SpringBootTest
+@Import({StatementCounter.class, TestData.class})
+class CourseServiceStatementCountTest {
+    @Autowired
+    private CourseService courseService;
+    @Autowired
+    private CourseMembershipIndex membershipIndex;
+    @Autowired
+    private SectionRepository sectionRepository;
+    @Autowired
+    private TextRepository textRepository;
+    @Autowired
+    private TestData testData;
+
+    private Integer courseId;
+    private Integer sectionId;
+    private Integer partId;
+    private Authentication teacher;
+
+    @BeforeEach
+    void createCourse() {
+        User user = testData.user();
+        Course course = testData.course(user, null);
+        // part edits require both roles
+        membershipIndex.addAssistant(course.getId(), user.getId());
+        Section section = sectionRepository.save(Section.builder().name("Section").course(course).build());
+        Text text = textRepository.save(Text.builder().title("Text").text("Text").section(section).build());
+        courseId = course.getId();
+        sectionId = section.getId();
+        partId = text.getId();
+        teacher = TestData.login(user);
+    }
+
+    @Test
+    void editPartTextSelectsAndUpdatesOnce() throws Exception {
+        StatementCounter.start();
+        courseService.editPartText(courseId, sectionId, partId, new TextRequest("Edited", "Edited"), teacher);
+        assertThat(StatementCounter.stop()).isLessThanOrEqualTo(2);
+        assertThat(textRepository.findById(partId)).hasValueSatisfying(text -> assertThat(text.getTitle()).isEqualTo("Edited"));
+    }
+
+    @Test
+    void editSectionSelectsAndUpdatesOnce() throws Exception {
+        StatementCounter.start();
+        courseService.editSection(courseId, sectionId, new SectionRequest("Edited"), teacher);
+        assertThat(StatementCounter.stop()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void addPartTextLoadsOnlyTheSection() throws Exception {
+        StatementCounter.start();
+        courseService.addPartText(courseId, sectionId, new TextRequest("Added", "Added"), teacher);
+        // section, id sequence, insert and the course counters
+        assertThat(StatementCounter.stop()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void outsiderIsRejectedWithoutQueries() {
+        Course other = testData.course(testData.user(), null);
+        StatementCounter.start();
+        assertThatThrownBy(() -> courseService.editPartText(other.getId(), sectionId, partId, new TextRequest("x", "x"), teacher))
+                .isInstanceOf(OperationNotPermittedException.class);
+        assertThat(StatementCounter.stop()).isZero();
+    }
+}
@@ -0,0 +1,110 @@
+package com.mchis.enrollment;
+
+import com.mchis.StatementCounter;
+import com.mchis.TestData;
+import com.mchis.course.Course;
+import com.mchis.course.CourseRepository;
+import com.mchis.course.StudentCountFolder;
+import com.mchis.user.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.Authentication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Registration rushes of the same users must leave exactly one join row per user and a student count that matches.
+ * The scheduled fold is pushed out so the test decides when counts are folded.
+ */
+@SpringBootTest(properties = "application.course.counters.fold-interval-ms=3600000")
+@Import({StatementCounter.class, TestData.class})
+class ConcurrentRegistrationTest {
+    private static final int STUDENTS = 20;
+    private static final int ATTEMPTS_PER_STUDENT = 10;
+
+    @Autowired
+    private EnrollmentService enrollmentService;
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+    @Autowired
+    private CourseRepository courseRepository;
+    @Autowired
+    private StudentCountFolder studentCountFolder;
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void duplicateRegistrationsInsertOneRowPerStudent() throws Exception {
+        Course course = testData.course(testData.user(), null);
+        List<Authentication> logins = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            Authentication login = TestData.login(testData.user());
+            for (int attempt = 0; attempt < ATTEMPTS_PER_STUDENT; attempt++) {
+                logins.add(login);
+            }
+        }
+
+        List<EnrollmentStatus> statuses = registerAtOnce(course.getId(), logins);
+
+        assertThat(statuses).filteredOn(EnrollmentStatus.ENROLLED::equals).hasSize(STUDENTS);
+        assertThat(statuses).filteredOn(EnrollmentStatus.ALREADY_ENROLLED::equals).hasSize(logins.size() - STUDENTS);
+        assertThat(enrollmentRepository.countStudents(course.getId())).isEqualTo(STUDENTS);
+        studentCountFolder.fold();
+        assertThat(courseRepository.findById(course.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getStudentCount()).isEqualTo(STUDENTS));
+    }
+
+    @Test
+    void registrationCostDoesNotGrowWithEnrollment() throws Exception {
+        Course course = testData.course(testData.user(), null);
+        // the first registration also loads the course's seat counter, so the baseline is taken after it
+        statementsOfOneRegistration(course.getId());
+        int empty = statementsOfOneRegistration(course.getId());
+        List<Authentication> logins = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            logins.add(TestData.login(testData.user()));
+        }
+        registerAtOnce(course.getId(), logins);
+        assertThat(statementsOfOneRegistration(course.getId())).isEqualTo(empty);
+    }
+
+    private int statementsOfOneRegistration(Integer courseId) throws Exception {
+        Authentication login = TestData.login(testData.user());
+        StatementCounter.start();
+        enrollmentService.register(courseId, login);
+        return StatementCounter.stop();
+    }
+
+    private List<EnrollmentStatus> registerAtOnce(Integer courseId, List<Authentication> logins) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<EnrollmentStatus>> futures = new ArrayList<>();
+            for (Authentication login : logins) {
+                Callable<EnrollmentStatus> registration = () -> {
+                    start.await();
+                    return enrollmentService.register(courseId, login).status();
+                };
+                futures.add(executor.submit(registration));
+            }
+            start.countDown();
+            List<EnrollmentStatus> statuses = new ArrayList<>();
+            for (Future<EnrollmentStatus> future : futures) {
+                statuses.add(future.get());
+            }
+            return statuses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.mchis.enrollment;
+
+import com.mchis.TestData;
+import com.mchis.course.Course;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.Authentication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures registrations per second with 1000 clients registering for a course with 500 seats at the same moment.
+ * Run with {@code mvn test -Dbenchmarks=true -Dtest=RegistrationBenchmarkTest}.
+ */
+@Slf4j
+@SpringBootTest
+@Import(TestData.class)
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class RegistrationBenchmarkTest {
+    private static final int CLIENTS = 1000;
+    private static final int SEATS = 500;
+
+    @Autowired
+    private EnrollmentService enrollmentService;
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void registrationRush() throws Exception {
+        Course course = testData.course(testData.user(), SEATS);
+        List<Authentication> logins = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            logins.add(TestData.login(testData.user()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        List<EnrollmentStatus> statuses = new ArrayList<>();
+        long elapsed;
+        try {
+            CountDownLatch ready = new CountDownLatch(CLIENTS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<EnrollmentStatus>> futures = new ArrayList<>();
+            for (Authentication login : logins) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    return enrollmentService.register(course.getId(), login).status();
+                }));
+            }
+            ready.await();
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<EnrollmentStatus> future : futures) {
+                statuses.add(future.get());
+            }
+            elapsed = System.nanoTime() - started;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info(String.format("%d registrations by %d clients in %d ms, %.0f registrations/s",
+                CLIENTS, CLIENTS, elapsed / 1_000_000, CLIENTS * 1e9 / elapsed));
+        assertThat(statuses).filteredOn(EnrollmentStatus.ENROLLED::equals).hasSize(SEATS);
+        assertThat(statuses).filteredOn(EnrollmentStatus.WAITLISTED::equals).hasSize(CLIENTS - SEATS);
+        assertThat(enrollmentRepository.countStudents(course.getId())).isEqualTo(SEATS);
+    }
+}
@@ -0,0 +1,95 @@
+package com.mchis.file;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares lookups and directory listings of {@link StorageLayout}'s fan-out folders with the same files in one flat
+ * folder, as courses used to store them. Run with {@code mvn test -Dbenchmarks=true -Dtest=StorageLayoutBenchmarkTest}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class StorageLayoutBenchmarkTest {
+    private static final int FILES = 200_000;
+    private static final int LOOKUPS = 20_000;
+
+    @TempDir
+    private Path root;
+
+    @Test
+    void shardedAgainstFlat() throws IOException {
+        StorageLayout layout = new StorageLayout(root.resolve("sharded").toString());
+        Path flat = Files.createDirectories(root.resolve("flat"));
+        List<Path> sharded = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            Path file = layout.newSubmission("pdf");
+            Files.createDirectories(file.getParent());
+            Files.createFile(file);
+            Files.createFile(flat.resolve(file.getFileName()));
+            sharded.add(file);
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Path> sample = new ArrayList<>(LOOKUPS);
+        for (int i = 0; i < LOOKUPS; i++) {
+            sample.add(sharded.get(random.nextInt(FILES)));
+        }
+        long shardedLookup = time(() -> sample.forEach(file -> assertThat(Files.exists(file)).isTrue()));
+        long flatLookup = time(() -> sample.forEach(file -> assertThat(Files.exists(flat.resolve(file.getFileName()))).isTrue()));
+        log.info(String.format("%d lookups among %d files: sharded %d ms, flat %d ms",
+                LOOKUPS, FILES, shardedLookup / 1_000_000, flatLookup / 1_000_000));
+
+        // listing the folder of one file, as a lookup by prefix or a cleanup of its neighbours does
+        long shardedList = time(() -> list(sample.get(0).getParent()));
+        long flatList = time(() -> list(flat));
+        log.info(String.format("Listing the folder of one file: sharded %d entries in %d us, flat %d entries in %d us",
+                list(sample.get(0).getParent()), shardedList / 1000, list(flat), flatList / 1000));
+
+        // a backup scan visits every file either way, the fan-out costs the extra directories
+        long shardedScan = time(() -> count(layout.submissions()));
+        long flatScan = time(() -> count(flat));
+        log.info(String.format("Scanning all %d files: sharded %d ms, flat %d ms", FILES, shardedScan / 1_000_000, flatScan / 1_000_000));
+
+        assertThat(count(layout.submissions())).isEqualTo(FILES);
+        assertThat(list(sample.get(0).getParent())).isLessThan(FILES / 1000);
+    }
+
+    private static long time(IoAction action) throws IOException {
+        long started = System.nanoTime();
+        action.run();
+        return System.nanoTime() - started;
+    }
+
+    private static int list(Path folder) throws IOException {
+        int entries = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path ignored : files) {
+                entries++;
+            }
+        }
+        return entries;
+    }
+
+    private static long count(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
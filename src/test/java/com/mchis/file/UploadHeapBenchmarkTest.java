@@ -0,0 +1,129 @@
+package com.mchis.file;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stores uploads of growing size and measures the heap allocated by the uploading thread for each. Streaming keeps
+ * that allocation flat, holding an upload in memory would grow it with the file. Run with
+ * {@code mvn test -Dbenchmarks=true -Dtest=UploadHeapBenchmarkTest}.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class UploadHeapBenchmarkTest {
+    private static final long MB = 1024 * 1024;
+    private static final long[] SIZES = {16 * MB, 128 * MB, 1024 * MB};
+
+    @Autowired
+    private FileStorageService fileStorageService;
+    @Autowired
+    private ContentStore contentStore;
+
+    @Test
+    void heapDoesNotGrowWithFileSize() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        // warms up class loading and the connection pool, so the first measured upload is not charged for them
+        contentStore.release(fileStorageService.saveFile(new GeneratedFile(MB), 0));
+
+        long[] allocated = new long[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            String path = fileStorageService.saveFile(new GeneratedFile(SIZES[i]), 0);
+            allocated[i] = threads.getThreadAllocatedBytes(thread) - before;
+            contentStore.release(path);
+            log.info(String.format("Upload of %d MB allocated %d KB on the heap", SIZES[i] / MB, allocated[i] / 1024));
+        }
+        // a 64 times larger file may cost some more bookkeeping, but nowhere near its size
+        assertThat(allocated[SIZES.length - 1]).isLessThan(allocated[0] + 8 * MB);
+    }
+
+    /**
+     * A multipart file of pseudo random bytes generated while it is read. getBytes fails, so an upload path that
+     * buffers the whole file fails the benchmark instead of skewing it.
+     */
+    private static final class GeneratedFile implements MultipartFile {
+        private final long size;
+
+        GeneratedFile(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "generated.bin";
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/octet-stream";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException("Uploads must be streamed");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            SplittableRandom random = new SplittableRandom();
+            return new InputStream() {
+                private long remaining = size;
+
+                @Override
+                public int read() {
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    remaining--;
+                    return random.nextInt(256);
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    int count = (int) Math.min(length, remaining);
+                    for (int i = 0; i < count; i++) {
+                        buffer[offset + i] = (byte) random.nextInt(256);
+                    }
+                    remaining -= count;
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException("Not used by the content store");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.mchis.submission;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * MinHash signatures over word shingles. Two signatures agree in a position with probability equal to the
+ * Jaccard similarity of the shingle sets, so comparing signatures estimates similarity without the text.
+ */
+final class MinHash {
+    static final int HASHES = 128;
+    // 32 bands of 4 rows put the knee of the banding S-curve near (1/32)^(1/4) = 0.42, well below the 0.7
+    // threshold, so a pair at 0.7 shares a band with probability 1 - (1 - 0.7^4)^32 > 0.999
+    static final int BANDS = 32;
+    static final int ROWS = HASHES / BANDS;
+    private static final int SHINGLE_WORDS = 4;
+
+    private MinHash() {
+    }
+
+    /**
+     * Reads the text once, lower-casing it and splitting it into words, and folds every run of
+     * {@value #SHINGLE_WORDS} consecutive words into the signature. Returns null for text without a single shingle.
+     */
+    static int[] signature(Reader reader) throws IOException {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        long[] window = new long[SHINGLE_WORDS];
+        int words = 0;
+        long word = FNV_OFFSET;
+        boolean inWord = false;
+        int c;
+        while (true) {
+            c = reader.read();
+            if (c >= 0 && Character.isLetterOrDigit(c)) {
+                word = (word ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inWord = true;
+                continue;
+            }
+            if (inWord) {
+                window[words % SHINGLE_WORDS] = word;
+                words++;
+                if (words >= SHINGLE_WORDS) {
+                    add(signature, shingle(window, words));
+                }
+                word = FNV_OFFSET;
+                inWord = false;
+            }
+            if (c < 0) {
+                break;
+            }
+        }
+        return words >= SHINGLE_WORDS ? signature : null;
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / HASHES;
+    }
+
+    static long bandKey(int[] signature, int band) {
+        long hash = FNV_OFFSET ^ band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            hash = (hash ^ signature[i]) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    static byte[] toBytes(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(HASHES * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return buffer.array();
+    }
+
+    static int[] fromBytes(byte[] bytes) {
+        int[] signature = new int[HASHES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static long shingle(long[] window, int words) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < SHINGLE_WORDS; i++) {
+            hash = (hash ^ window[(words + i) % SHINGLE_WORDS]) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Derives the {@value #HASHES} hash functions from two halves of one 64-bit hash (Kirsch-Mitzenmacher),
+     * so each shingle is hashed once.
+     */
+    private static void add(int[] signature, long shingle) {
+        long mixed = mix(shingle);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int h = h1 + i * h2;
+            if (h < signature[i]) {
+                signature[i] = h;
+            }
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
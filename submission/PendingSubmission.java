@@ -0,0 +1,36 @@
+package com.mchis.submission;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A spooled submission that was acknowledged but is not stored yet. The row is written before the receipt is
+ * returned and removed in the transaction that records the {@link Submission}, so an acknowledged upload survives
+ * a restart and is replayed from its spool file by {@link SubmissionService}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        indexes = @Index(name = "idx_pending_submission_claimed_at", columnList = "claimed_at")
+)
+public class PendingSubmission {
+    // the receipt id handed to the student
+    @Id
+    private String id;
+    private Integer courseId;
+    private Integer assignmentId;
+    private Integer studentId;
+    private String spoolPath;
+    private String originalName;
+    private LocalDateTime submittedAt;
+    // when a worker last took the row on, it is replayed once this is older than the replay lease
+    private LocalDateTime claimedAt;
+}
@@ -0,0 +1,69 @@
+package com.mchis.submission;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Writes {@link PendingSubmission}s with single statements. Claiming skips rows another node is claiming right now,
+ * and removing a row tells its caller whether it was the one to finish the submission.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PendingSubmissionRepository {
+    private static final RowMapper<PendingSubmission> ROW = (rs, rowNum) -> PendingSubmission.builder()
+            .id(rs.getString("id"))
+            .courseId(rs.getInt("course_id"))
+            .assignmentId(rs.getInt("assignment_id"))
+            .studentId(rs.getInt("student_id"))
+            .spoolPath(rs.getString("spool_path"))
+            .originalName(rs.getString("original_name"))
+            .submittedAt(rs.getObject("submitted_at", LocalDateTime.class))
+            .claimedAt(rs.getObject("claimed_at", LocalDateTime.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(PendingSubmission pending) {
+        jdbcTemplate.update("insert into pending_submission (id, course_id, assignment_id, student_id, spool_path, "
+                        + "original_name, submitted_at, claimed_at) values (?, ?, ?, ?, ?, ?, ?, now())",
+                pending.getId(), pending.getCourseId(), pending.getAssignmentId(), pending.getStudentId(),
+                pending.getSpoolPath(), pending.getOriginalName(), pending.getSubmittedAt());
+    }
+
+    /**
+     * Takes on up to limit rows whose last claim is older than the cutoff, their worker is gone or stuck.
+     */
+    public List<PendingSubmission> claimExpired(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.query("update pending_submission set claimed_at = now() where id in "
+                + "(select id from pending_submission where claimed_at < ? order by claimed_at limit ? for update skip locked) "
+                + "returning *", ROW, cutoff, limit);
+    }
+
+    public Optional<PendingSubmission> findByIdAndStudentId(String id, Integer studentId) {
+        return jdbcTemplate.query("select * from pending_submission where id = ? and student_id = ?", ROW, id, studentId)
+                .stream().findFirst();
+    }
+
+    public boolean exists(String id) {
+        return !jdbcTemplate.queryForList("select 1 from pending_submission where id = ?", Integer.class, id).isEmpty();
+    }
+
+    public Set<String> findSpoolPaths() {
+        return new HashSet<>(jdbcTemplate.queryForList("select spool_path from pending_submission", String.class));
+    }
+
+    /**
+     * Removes the row and returns whether it was still there.
+     */
+    public boolean delete(String id) {
+        return jdbcTemplate.update("delete from pending_submission where id = ?", id) > 0;
+    }
+}
@@ -0,0 +1,8 @@
+package com.mchis.submission;
+
+public record SimilarPair(
+        Integer studentId,
+        Integer otherStudentId,
+        double similarity
+) {
+}
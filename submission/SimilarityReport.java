@@ -0,0 +1,24 @@
+package com.mchis.submission;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record SimilarityReport(
+        Integer assignmentId,
+        SimilarityReportStatus status,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        int submissions,
+        int comparedSubmissions,
+        int candidatePairs,
+        List<SimilarPair> pairs
+) {
+    static SimilarityReport running(Integer assignmentId) {
+        return new SimilarityReport(assignmentId, SimilarityReportStatus.RUNNING, LocalDateTime.now(), null, 0, 0, 0, List.of());
+    }
+
+    SimilarityReport failed() {
+        return new SimilarityReport(assignmentId, SimilarityReportStatus.FAILED, startedAt, LocalDateTime.now(),
+                submissions, comparedSubmissions, candidatePairs, List.of());
+    }
+}
@@ -0,0 +1,260 @@
+package com.mchis.submission;
+
+import com.mchis.assignment.AssignmentRepository;
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.user.User;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Flags near-duplicate submissions of an assignment. Each text submission carries a MinHash signature,
+ * computed when it is stored, and locality-sensitive hashing over signature bands finds the candidate pairs
+ * in roughly linear time, so only pairs that share a band are ever compared.
+ */
+@Service
+@Slf4j
+public class SimilarityService {
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(
+            "txt", "md", "csv", "json", "xml", "html", "css", "sql", "tex",
+            "java", "kt", "py", "c", "h", "cpp", "hpp", "cs", "js", "ts", "go", "rs", "rb", "php", "swift"
+    );
+    // below this many items a fork/join task computes its signatures itself
+    private static final int SEQUENTIAL_THRESHOLD = 8;
+
+    private final SubmissionRepository submissionRepository;
+    private final SubmissionSignatureRepository signatureRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final CourseMembershipIndex membershipIndex;
+    private final ForkJoinPool pool;
+    private final long maxTextBytes;
+    private final double threshold;
+    private final Map<Integer, SimilarityReport> reports = new ConcurrentHashMap<>();
+
+    public SimilarityService(
+            SubmissionRepository submissionRepository,
+            SubmissionSignatureRepository signatureRepository,
+            AssignmentRepository assignmentRepository,
+            CourseMembershipIndex membershipIndex,
+            @Value("${application.submission.similarity.max-text-bytes:10485760}") long maxTextBytes,
+            @Value("${application.submission.similarity.threshold:0.7}") double threshold
+    ) {
+        this.submissionRepository = submissionRepository;
+        this.signatureRepository = signatureRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.membershipIndex = membershipIndex;
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.maxTextBytes = maxTextBytes;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the serialized MinHash signature of a stored submission, or null if it is not a text file
+     * or too large to be worth shingling.
+     */
+    byte[] signature(String path) {
+        Path file = Paths.get(path);
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || !TEXT_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+        try {
+            if (Files.size(file) > maxTextBytes) {
+                return null;
+            }
+            // malformed bytes are replaced rather than failing the whole file
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file),
+                    UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE)))) {
+                int[] signature = MinHash.signature(reader);
+                return signature == null ? null : MinHash.toBytes(signature);
+            }
+        } catch (IOException e) {
+            log.warn(String.format("Failed to compute the signature of %s", path), e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts the similarity job of the assignment in the background unless one is already running.
+     */
+    public SimilarityReport start(
+            Integer courseId,
+            Integer sectionId,
+            Integer partId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        checkAssignment(courseId, sectionId, partId, authentication);
+        SimilarityReport running = SimilarityReport.running(partId);
+        SimilarityReport current = reports.compute(partId, (id, report) ->
+                report != null && report.status() == SimilarityReportStatus.RUNNING ? report : running);
+        if (current == running) {
+            pool.execute(() -> run(partId, running));
+        }
+        return current;
+    }
+
+    public SimilarityReport getReport(
+            Integer courseId,
+            Integer sectionId,
+            Integer partId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        checkAssignment(courseId, sectionId, partId, authentication);
+        SimilarityReport report = reports.get(partId);
+        if (report == null) {
+            throw new EntityNotFoundException(String.format("No similarity report for assignment %d", partId));
+        }
+        return report;
+    }
+
+    /**
+     * Forgets the report of a deleted assignment once the delete committed. A job still running for it finds its
+     * report gone and does not put it back.
+     */
+    public void assignmentDeleted(Integer assignmentId) {
+        afterCommit(() -> reports.remove(assignmentId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void run(Integer assignmentId, SimilarityReport running) {
+        try {
+            List<SubmissionSignature> submissions = submissionRepository.findSignatures(assignmentId);
+            int[][] signatures = new int[submissions.size()][];
+            Map<Integer, byte[]> computed = new ConcurrentHashMap<>();
+            // signatures missing from older submissions are computed in parallel, then stored in one batch for the next run
+            pool.invoke(new SignatureTask(submissions, signatures, computed, 0, submissions.size()));
+            signatureRepository.updateAll(computed);
+
+            Map<Long, List<Integer>> buckets = new HashMap<>();
+            int compared = 0;
+            for (int i = 0; i < signatures.length; i++) {
+                if (signatures[i] == null) {
+                    continue;
+                }
+                compared++;
+                for (int band = 0; band < MinHash.BANDS; band++) {
+                    // the band index is part of the key so equal rows in different bands do not collide
+                    buckets.computeIfAbsent(MinHash.bandKey(signatures[i], band), key -> new ArrayList<>()).add(i);
+                }
+            }
+            Set<Long> candidates = new HashSet<>();
+            List<SimilarPair> pairs = new ArrayList<>();
+            for (List<Integer> bucket : buckets.values()) {
+                for (int a = 0; a < bucket.size(); a++) {
+                    for (int b = a + 1; b < bucket.size(); b++) {
+                        int i = bucket.get(a);
+                        int j = bucket.get(b);
+                        if (!candidates.add((long) Math.min(i, j) << 32 | Math.max(i, j))) {
+                            continue;
+                        }
+                        double similarity = MinHash.similarity(signatures[i], signatures[j]);
+                        if (similarity >= threshold) {
+                            pairs.add(new SimilarPair(submissions.get(i).studentId(), submissions.get(j).studentId(), similarity));
+                        }
+                    }
+                }
+            }
+            pairs.sort(Comparator.comparingDouble(SimilarPair::similarity).reversed());
+            reports.replace(assignmentId, running, new SimilarityReport(assignmentId, SimilarityReportStatus.DONE, running.startedAt(),
+                    LocalDateTime.now(), submissions.size(), compared, candidates.size(), List.copyOf(pairs)));
+            log.info(String.format("Compared %d submissions of assignment %d, %d candidate pairs, %d flagged",
+                    compared, assignmentId, candidates.size(), pairs.size()));
+        } catch (RuntimeException e) {
+            log.error(String.format("Similarity job of assignment %d failed", assignmentId), e);
+            reports.replace(assignmentId, running, running.failed());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void checkAssignment(Integer courseId, Integer sectionId, Integer partId, Authentication authentication)
+            throws OperationNotPermittedException {
+        membershipIndex.requireTeacher((User) authentication.getPrincipal(), courseId);
+        if (!assignmentRepository.existsByIdAndSectionIdAndSectionCourseId(partId, sectionId, courseId)) {
+            throw new EntityNotFoundException(String.format("Part with id %d in section %d in course %d not found", partId, sectionId, courseId));
+        }
+    }
+
+    private class SignatureTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<SubmissionSignature> submissions;
+        private final int[][] signatures;
+        private final Map<Integer, byte[]> computed;
+        private final int from;
+        private final int to;
+
+        private SignatureTask(List<SubmissionSignature> submissions, int[][] signatures, Map<Integer, byte[]> computed, int from, int to) {
+            this.submissions = submissions;
+            this.signatures = signatures;
+            this.computed = computed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    SubmissionSignature submission = submissions.get(i);
+                    byte[] minhash = submission.minhash();
+                    if (minhash == null) {
+                        minhash = signature(submission.path());
+                        if (minhash != null) {
+                            computed.put(submission.id(), minhash);
+                        }
+                    }
+                    signatures[i] = minhash == null ? null : MinHash.fromBytes(minhash);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SignatureTask(submissions, signatures, computed, from, middle),
+                    new SignatureTask(submissions, signatures, computed, middle, to));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mchis.submission;
+
+import com.mchis.assignment.Assignment;
+import com.mchis.user.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "uk_submission_assignment_student", columnNames = {"assignment_id", "student_id"}),
+        // OrphanFileSweeper looks submissions up by path
+        indexes = @Index(name = "idx_submission_path", columnList = "path")
+)
+public class Submission {
+    @Id
+    @GeneratedValue
+    private Integer id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "assignment_id")
+    private Assignment assignment;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "student_id")
+    private User student;
+    private String path;
+    private String originalName;
+    private long fileSize;
+    // hex encoded SHA-256 of the file
+    private String checksum;
+    private LocalDateTime submittedAt;
+    // MinHash signature of text submissions, see SimilarityService
+    private byte[] minhash;
+}
@@ -0,0 +1,93 @@
+package com.mchis.submission;
+
+import com.mchis.config.RequestArrivalFilter;
+import com.mchis.exception.OperationNotPermittedException;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("courses")
+@Tag(name = "Submission")
+public class SubmissionController {
+    private final SubmissionService submissionService;
+    private final SimilarityService similarityService;
+
+    @PostMapping(value = "/my/{course-id}/sections/{section-id}/assignments/{part-id}/submission", consumes = "multipart/form-data")
+    public ResponseEntity<SubmissionReceipt> submit(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            @RequestPart("file") MultipartFile file,
+            @RequestAttribute(RequestArrivalFilter.ARRIVED_AT) LocalDateTime arrivedAt,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        return ResponseEntity.accepted().body(submissionService.submit(courseId, sectionId, partId, file, arrivedAt, authentication));
+    }
+
+    @GetMapping("/my/submission-receipts/{receipt-id}")
+    public ResponseEntity<SubmissionReceipt> getReceipt(
+            @PathVariable("receipt-id") String receiptId,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(submissionService.getReceipt(receiptId, authentication));
+    }
+
+    @PostMapping("/teach/{course-id}/sections/{section-id}/assignments/{part-id}/similarity")
+    public ResponseEntity<SimilarityReport> startSimilarityReport(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.accepted().body(similarityService.start(courseId, sectionId, partId, authentication));
+    }
+
+    @GetMapping("/teach/{course-id}/sections/{section-id}/assignments/{part-id}/similarity")
+    public ResponseEntity<SimilarityReport> getSimilarityReport(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.ok(similarityService.getReport(courseId, sectionId, partId, authentication));
+    }
+
+    @GetMapping("/submission-queue-stats")
+    public ResponseEntity<SubmissionQueueStats> getQueueStats() {
+        return ResponseEntity.ok(submissionService.getQueueStats());
+    }
+
+    @GetMapping("/my/{course-id}/sections/{section-id}/assignments/{part-id}/submission")
+    public ResponseEntity<SubmissionResponse> getMySubmission(
+            @PathVariable("course-id") Integer courseId,
+            @PathVariable("section-id") Integer sectionId,
+            @PathVariable("part-id") Integer partId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        return ResponseEntity.ok(submissionService.getMySubmission(courseId, sectionId, partId, authentication));
+    }
+
+    @ExceptionHandler(SubmissionQueueFullException.class)
+    public ResponseEntity<String> queueFull(SubmissionQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+}
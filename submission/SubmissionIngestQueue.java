@@ -0,0 +1,116 @@
+package com.mchis.submission;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded worker pool that processes spooled submissions off the servlet threads. When the queue is full
+ * new work is refused rather than buffered, which the controller turns into a 429 so clients back off.
+ * <p>
+ * The queue itself is not durable. Every queued submission has a {@link PendingSubmission} row, and those still
+ * queued when the application stops are replayed from their spool files by {@link SubmissionService#replay()}.
+ */
+@Component
+@Slf4j
+public class SubmissionIngestQueue {
+    private final ThreadPoolExecutor executor;
+    private final int capacity;
+    private final long retryAfterSeconds;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    public SubmissionIngestQueue(
+            @Value("${application.submission.ingest.workers:4}") int workers,
+            @Value("${application.submission.ingest.queue-capacity:1000}") int capacity,
+            @Value("${application.submission.ingest.retry-after-seconds:5}") long retryAfterSeconds
+    ) {
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "submission-ingest-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.capacity = capacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Queues the job or throws {@link SubmissionQueueFullException} when the workers cannot keep up.
+     * The job returns whether it succeeded, its latency is measured from {@code acceptedAtNanos}.
+     */
+    public void submit(long acceptedAtNanos, Job job) {
+        try {
+            executor.execute(() -> run(acceptedAtNanos, job));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new SubmissionQueueFullException("Too many submissions are being processed, please retry shortly",
+                    retryAfterSeconds);
+        }
+        accepted.increment();
+    }
+
+    public SubmissionQueueStats stats() {
+        long done = completed.sum() + failed.sum();
+        return new SubmissionQueueStats(
+                executor.getQueue().size(),
+                capacity,
+                executor.getActiveCount(),
+                accepted.sum(),
+                rejected.sum(),
+                completed.sum(),
+                failed.sum(),
+                done == 0 ? 0 : (double) totalLatencyMillis.sum() / done,
+                maxLatencyMillis.get()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn(String.format("Shut down with %d submissions still queued, they are replayed at the next start",
+                    executor.getQueue().size()));
+        }
+    }
+
+    private void run(long acceptedAtNanos, Job job) {
+        boolean succeeded;
+        try {
+            succeeded = job.run();
+        } catch (RuntimeException e) {
+            log.error("Submission processing failed", e);
+            succeeded = false;
+        }
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - acceptedAtNanos);
+        totalLatencyMillis.add(latency);
+        maxLatencyMillis.accumulateAndGet(latency, Math::max);
+        if (succeeded) {
+            completed.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Job {
+        boolean run();
+    }
+}
@@ -0,0 +1,14 @@
+package com.mchis.submission;
+
+public record SubmissionQueueStats(
+        int queueDepth,
+        int queueCapacity,
+        int activeWorkers,
+        long accepted,
+        long rejected,
+        long completed,
+        long failed,
+        double meanLatencyMillis,
+        long maxLatencyMillis
+) {
+}
@@ -0,0 +1,20 @@
+package com.mchis.submission;
+
+import java.time.LocalDateTime;
+
+public record SubmissionReceipt(
+        String receiptId,
+        Integer assignmentId,
+        SubmissionStatus status,
+        LocalDateTime submittedAt,
+        SubmissionResponse submission,
+        String error
+) {
+    SubmissionReceipt stored(SubmissionResponse submission) {
+        return new SubmissionReceipt(receiptId, assignmentId, SubmissionStatus.STORED, submittedAt, submission, null);
+    }
+
+    SubmissionReceipt failed(String error) {
+        return new SubmissionReceipt(receiptId, assignmentId, SubmissionStatus.FAILED, submittedAt, null, error);
+    }
+}
@@ -0,0 +1,34 @@
+package com.mchis.submission;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SubmissionRepository extends JpaRepository<Submission, Integer> {
+    Optional<Submission> findByAssignmentIdAndStudentId(Integer assignmentId, Integer studentId);
+
+    @Query("""
+            select new com.mchis.submission.SubmissionSignature(s.id, s.student.id, s.path, s.minhash)
+            from Submission s
+            where s.assignment.id = :assignmentId
+            """)
+    List<SubmissionSignature> findSignatures(@Param("assignmentId") Integer assignmentId);
+
+    // submissions reference their assignment, so they go before the part, section or course that holds it
+
+    @Modifying
+    @Query("delete from Submission s where s.assignment.id = :assignmentId")
+    int deleteByAssignmentId(@Param("assignmentId") Integer assignmentId);
+
+    @Modifying
+    @Query("delete from Submission s where s.assignment.id in (select a.id from Assignment a where a.section.id = :sectionId)")
+    int deleteBySectionId(@Param("sectionId") Integer sectionId);
+
+    @Modifying
+    @Query("delete from Submission s where s.assignment.id in (select a.id from Assignment a where a.section.course.id = :courseId)")
+    int deleteByCourseId(@Param("courseId") Integer courseId);
+}
@@ -0,0 +1,23 @@
+package com.mchis.submission;
+
+import java.time.LocalDateTime;
+
+public record SubmissionResponse(
+        Integer id,
+        Integer assignmentId,
+        String originalName,
+        long size,
+        String checksum,
+        LocalDateTime submittedAt
+) {
+    static SubmissionResponse of(Submission submission, Integer assignmentId) {
+        return new SubmissionResponse(
+                submission.getId(),
+                assignmentId,
+                submission.getOriginalName(),
+                submission.getFileSize(),
+                submission.getChecksum(),
+                submission.getSubmittedAt()
+        );
+    }
+}
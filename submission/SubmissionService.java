@@ -0,0 +1,339 @@
+package com.mchis.submission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mchis.assignment.AssignmentRepository;
+import com.mchis.assignment.AssignmentWindow;
+import com.mchis.course.CourseMembershipIndex;
+import com.mchis.exception.OperationNotPermittedException;
+import com.mchis.file.FileStorageService;
+import com.mchis.file.StoredFile;
+import com.mchis.user.User;
+import com.mchis.user.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class SubmissionService {
+    private static final int REPLAY_BATCH = 100;
+
+    private final SubmissionRepository submissionRepository;
+    private final PendingSubmissionRepository pendingSubmissionRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final UserRepository userRepository;
+    private final FileStorageService fileStorageService;
+    private final CourseMembershipIndex membershipIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final SubmissionIngestQueue ingestQueue;
+    private final SimilarityService similarityService;
+    // receipts are only kept long enough for clients to poll the outcome
+    private final Cache<String, SubmissionReceipt> receipts;
+    // how long after the deadline an upload that started in time may finish
+    private final Duration uploadGrace;
+    // how long a pending submission may go unfinished before another worker replays it
+    private final Duration replayLease;
+
+    public SubmissionService(
+            SubmissionRepository submissionRepository,
+            PendingSubmissionRepository pendingSubmissionRepository,
+            AssignmentRepository assignmentRepository,
+            UserRepository userRepository,
+            FileStorageService fileStorageService,
+            CourseMembershipIndex membershipIndex,
+            SubmissionIngestQueue ingestQueue,
+            SimilarityService similarityService,
+            PlatformTransactionManager transactionManager,
+            @Value("${application.submission.receipts.time-to-live:1h}") Duration receiptTimeToLive,
+            @Value("${application.submission.upload-grace:15m}") Duration uploadGrace,
+            @Value("${application.submission.ingest.replay-lease:10m}") Duration replayLease
+    ) {
+        this.submissionRepository = submissionRepository;
+        this.pendingSubmissionRepository = pendingSubmissionRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.userRepository = userRepository;
+        this.fileStorageService = fileStorageService;
+        this.membershipIndex = membershipIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.ingestQueue = ingestQueue;
+        this.similarityService = similarityService;
+        this.receipts = Caffeine.newBuilder()
+                .expireAfterWrite(receiptTimeToLive)
+                .build();
+        this.uploadGrace = uploadGrace;
+        this.replayLease = replayLease;
+    }
+
+    /**
+     * Accepts the student's submission, replacing an earlier one, and acknowledges it with a receipt once the
+     * upload is spooled and recorded as a {@link PendingSubmission}. Hashing, storing and recording it happen on
+     * the ingest workers, and a pending submission the workers did not finish is replayed, see {@link #replay()}.
+     * The submission time is when the request arrived, recorded by {@link com.mchis.config.RequestArrivalFilter}
+     * before the body was read, so an upload that starts before the deadline is accepted however long the queue takes. The transfer
+     * itself must finish within the configured grace period after the deadline, or a slow trickled body would
+     * keep the assignment open indefinitely.
+     */
+    public SubmissionReceipt submit(
+            Integer courseId,
+            Integer sectionId,
+            Integer partId,
+            MultipartFile file,
+            LocalDateTime submittedAt,
+            Authentication authentication
+    ) throws OperationNotPermittedException, IOException {
+        User user = (User) authentication.getPrincipal();
+        checkStudent(user, courseId);
+        AssignmentWindow window = loadWindow(courseId, sectionId, partId);
+        if (window.startTime() != null && submittedAt.isBefore(window.startTime())) {
+            throw new OperationNotPermittedException(String.format("Assignment %d opens at %s", partId, window.startTime()));
+        }
+        if (window.endTime() != null && submittedAt.isAfter(window.endTime())) {
+            throw new OperationNotPermittedException(String.format("Assignment %d closed at %s", partId, window.endTime()));
+        }
+        // the multipart body is fully read by now
+        if (window.endTime() != null && LocalDateTime.now().isAfter(window.endTime().plus(uploadGrace))) {
+            throw new OperationNotPermittedException(String.format("Upload for assignment %d finished more than %s after it closed at %s",
+                    partId, uploadGrace, window.endTime()));
+        }
+
+        long acceptedAt = System.nanoTime();
+        Path spooled = fileStorageService.spool(file);
+        PendingSubmission pending = PendingSubmission.builder()
+                .id(UUID.randomUUID().toString())
+                .courseId(courseId)
+                .assignmentId(partId)
+                .studentId(user.getId())
+                .spoolPath(spooled.toString())
+                .originalName(file.getOriginalFilename())
+                .submittedAt(submittedAt)
+                .build();
+        try {
+            pendingSubmissionRepository.insert(pending);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        SubmissionReceipt receipt = new SubmissionReceipt(pending.getId(), partId, SubmissionStatus.QUEUED,
+                submittedAt, null, null);
+        String key = receiptKey(user.getId(), receipt.receiptId());
+        receipts.put(key, receipt);
+        try {
+            ingestQueue.submit(acceptedAt, () -> process(pending));
+        } catch (SubmissionQueueFullException e) {
+            // refused, not acknowledged, so nothing may be replayed later
+            receipts.invalidate(key);
+            pendingSubmissionRepository.delete(pending.getId());
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        return receipt;
+    }
+
+    /**
+     * Returns the outcome of a submission. Receipts are kept in memory, a submission that is still pending after
+     * a restart is reported as queued from its {@link PendingSubmission}.
+     */
+    public SubmissionReceipt getReceipt(String receiptId, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        SubmissionReceipt receipt = receipts.getIfPresent(receiptKey(user.getId(), receiptId));
+        if (receipt != null) {
+            return receipt;
+        }
+        return pendingSubmissionRepository.findByIdAndStudentId(receiptId, user.getId())
+                .map(pending -> new SubmissionReceipt(pending.getId(), pending.getAssignmentId(), SubmissionStatus.QUEUED,
+                        pending.getSubmittedAt(), null, null))
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Submission receipt %s not found", receiptId)));
+    }
+
+    /**
+     * Queues the pending submissions whose worker went away with a stopped process, or got stuck, once their lease
+     * ran out, and then deletes spooled files nothing points at. Runs at startup and periodically after.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.submission.ingest.replay-interval-ms:60000}",
+            fixedDelayString = "${application.submission.ingest.replay-interval-ms:60000}")
+    public void replay() {
+        int replayed = 0;
+        List<PendingSubmission> batch;
+        do {
+            batch = pendingSubmissionRepository.claimExpired(LocalDateTime.now().minus(replayLease), REPLAY_BATCH);
+            for (PendingSubmission pending : batch) {
+                try {
+                    ingestQueue.submit(System.nanoTime(), () -> process(pending));
+                    replayed++;
+                } catch (SubmissionQueueFullException e) {
+                    // the rest stay claimed and come back once their lease runs out again
+                    log.warn("Ingest queue full, pending submissions are replayed later");
+                    batch = List.of();
+                    break;
+                }
+            }
+        } while (batch.size() == REPLAY_BATCH);
+        if (replayed > 0) {
+            log.info(String.format("Replaying %d pending submissions", replayed));
+        }
+        fileStorageService.clearSpool(pendingSubmissionRepository.findSpoolPaths(), replayLease);
+    }
+
+    public SubmissionQueueStats getQueueStats() {
+        return ingestQueue.stats();
+    }
+
+    public SubmissionResponse getMySubmission(
+            Integer courseId,
+            Integer sectionId,
+            Integer partId,
+            Authentication authentication
+    ) throws OperationNotPermittedException {
+        User user = (User) authentication.getPrincipal();
+        checkStudent(user, courseId);
+        loadWindow(courseId, sectionId, partId);
+        return readOnlyTransactionTemplate.execute(status -> submissionRepository.findByAssignmentIdAndStudentId(partId, user.getId())
+                .map(submission -> SubmissionResponse.of(submission, partId))
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Submission of user %d for assignment %d not found",
+                        user.getId(), partId))));
+    }
+
+    /**
+     * Stores and records a pending submission. A replayed one may be finished by two workers at once, only the one
+     * whose transaction removes the pending row records it.
+     */
+    private boolean process(PendingSubmission pending) {
+        String key = receiptKey(pending.getStudentId(), pending.getId());
+        Integer assignmentId = pending.getAssignmentId();
+        Integer studentId = pending.getStudentId();
+        Path spooled = Path.of(pending.getSpoolPath());
+        StoredFile stored;
+        try {
+            stored = fileStorageService.saveSubmission(spooled, pending.getOriginalName(), pending.getCourseId(),
+                    assignmentId, studentId);
+        } catch (IOException e) {
+            if (!pendingSubmissionRepository.exists(pending.getId())) {
+                // finished by another worker, which deleted the spooled file
+                return true;
+            }
+            log.error(String.format("Failed to store submission of user %d for assignment %d", studentId, assignmentId), e);
+            abandon(pending);
+            receipts.asMap().computeIfPresent(key, (k, receipt) -> receipt.failed("The file could not be stored"));
+            return false;
+        }
+        byte[] minhash = similarityService.signature(stored.path());
+        Saved saved;
+        try {
+            saved = saveWithRetry(pending, stored, minhash);
+        } catch (RuntimeException e) {
+            fileStorageService.deleteFile(stored.path());
+            log.error(String.format("Failed to record submission of user %d for assignment %d", studentId, assignmentId), e);
+            abandon(pending);
+            receipts.asMap().computeIfPresent(key, (k, receipt) -> receipt.failed("The submission could not be recorded"));
+            return false;
+        }
+        if (saved == null) {
+            fileStorageService.deleteFile(stored.path());
+            return true;
+        }
+        deleteSpooled(spooled);
+        if (saved.replacedPath() != null) {
+            fileStorageService.deleteFile(saved.replacedPath());
+        }
+        SubmissionResponse response = SubmissionResponse.of(saved.submission(), assignmentId);
+        receipts.asMap().computeIfPresent(key, (k, receipt) -> receipt.stored(response));
+        return true;
+    }
+
+    private void abandon(PendingSubmission pending) {
+        pendingSubmissionRepository.delete(pending.getId());
+        deleteSpooled(Path.of(pending.getSpoolPath()));
+    }
+
+    private void deleteSpooled(Path spooled) {
+        try {
+            Files.deleteIfExists(spooled);
+        } catch (IOException e) {
+            // without its pending row the file is removed by the next replay
+            log.warn(String.format("Failed to delete spooled file %s", spooled), e);
+        }
+    }
+
+    private Saved saveWithRetry(PendingSubmission pending, StoredFile stored, byte[] minhash) {
+        try {
+            return save(pending, stored, minhash);
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent first submission of the same student won the insert, update it instead
+            return save(pending, stored, minhash);
+        }
+    }
+
+    /**
+     * Records the submission and removes its pending row in one transaction. Returns null, recording nothing,
+     * if the row is gone because another worker finished it.
+     */
+    private Saved save(PendingSubmission pending, StoredFile stored, byte[] minhash) {
+        Integer assignmentId = pending.getAssignmentId();
+        Integer studentId = pending.getStudentId();
+        return transactionTemplate.execute(status -> {
+            if (!pendingSubmissionRepository.delete(pending.getId())) {
+                return null;
+            }
+            Submission submission = submissionRepository.findByAssignmentIdAndStudentId(assignmentId, studentId)
+                    .orElseGet(() -> Submission.builder()
+                            .assignment(assignmentRepository.getReferenceById(assignmentId))
+                            .student(userRepository.getReferenceById(studentId))
+                            .build());
+            String replacedPath = submission.getPath();
+            submission.setPath(stored.path());
+            submission.setOriginalName(pending.getOriginalName());
+            submission.setFileSize(stored.size());
+            submission.setChecksum(stored.sha256());
+            submission.setSubmittedAt(pending.getSubmittedAt());
+            submission.setMinhash(minhash);
+            Saved saved = new Saved(submissionRepository.saveAndFlush(submission), replacedPath);
+            assignmentRepository.markSubmitted(assignmentId);
+            return saved;
+        });
+    }
+
+    private AssignmentWindow loadWindow(Integer courseId, Integer sectionId, Integer partId) {
+        return readOnlyTransactionTemplate.execute(status -> assignmentRepository.findWindow(partId, sectionId, courseId))
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Part with id %d in section %d in course %d not found",
+                        partId, sectionId, courseId)));
+    }
+
+    private static String receiptKey(Integer userId, String receiptId) {
+        return userId + ":" + receiptId;
+    }
+
+    private void checkStudent(User user, Integer courseId) throws OperationNotPermittedException {
+        if (!membershipIndex.exists(courseId)) {
+            throw new EntityNotFoundException(String.format("Course with id %d does not exist", courseId));
+        }
+        if (!membershipIndex.isStudent(courseId, user.getId())) {
+            throw new OperationNotPermittedException(String.format("User %s is not a student of course %d",
+                    user.getFullName(), courseId));
+        }
+    }
+
+    private record Saved(Submission submission, String replacedPath) {
+    }
+}
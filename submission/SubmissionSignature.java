@@ -0,0 +1,9 @@
+package com.mchis.submission;
+
+public record SubmissionSignature(
+        Integer id,
+        Integer studentId,
+        String path,
+        byte[] minhash
+) {
+}
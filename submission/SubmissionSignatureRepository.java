@@ -0,0 +1,28 @@
+package com.mchis.submission;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the MinHash signatures computed by a similarity job in one JDBC batch.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SubmissionSignatureRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public void updateAll(Map<Integer, byte[]> signatures) {
+        if (signatures.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Integer, byte[]>> entries = List.copyOf(signatures.entrySet());
+        jdbcTemplate.batchUpdate("update submission set minhash = ? where id = ?", entries, entries.size(), (ps, entry) -> {
+            ps.setBytes(1, entry.getValue());
+            ps.setInt(2, entry.getKey());
+        });
+    }
+}
@@ -0,0 +1,7 @@
+package com.mchis.submission;
+
+public enum SubmissionStatus {
+    QUEUED,
+    STORED,
+    FAILED
+}
@@ -2,5 +2,8 @@ package com.mchis.text;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Optional;
+
 public interface TextRepository extends JpaRepository<Text, Integer> {
+    Optional<Text> findByIdAndSectionIdAndSectionCourseId(Integer id, Integer sectionId, Integer courseId);
 }
@@ -48,7 +48,7 @@ public class User implements UserDetails, Principal {
     @ManyToMany(fetch = EAGER)
     private List<Role> roles;
 
-    @ManyToMany(fetch = EAGER, cascade = REMOVE)
+    @ManyToMany(cascade = REMOVE)
     @JoinTable(
             name = "students_courses",
             joinColumns = {
@@ -56,11 +56,17 @@ public class User implements UserDetails, Principal {
             },
             inverseJoinColumns = {
                     @JoinColumn(name = "student_id")
+            },
+            uniqueConstraints = {
+                    @UniqueConstraint(name = "uk_students_courses", columnNames = {"course_id", "student_id"})
+            },
+            indexes = {
+                    @Index(name = "idx_students_courses_student_id", columnList = "student_id")
             }
     )
     private List<Course> learningCourses;
 
-    @ManyToMany(fetch = EAGER, cascade = REMOVE)
+    @ManyToMany(cascade = REMOVE)
     @JoinTable(
             name = "assistants_courses",
             joinColumns = {
@@ -0,0 +1,7 @@
+package com.mchis.user;
+
+public record UserKey(
+        Integer id,
+        String email
+) {
+}
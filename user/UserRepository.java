@@ -1,9 +1,19 @@
 package com.mchis.user;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByEmail(String username);
+
+    @Query("select new com.mchis.user.UserKey(u.id, u.email) from User u where u.email in :emails")
+    List<UserKey> findKeysByEmailIn(@Param("emails") Collection<String> emails);
+
+    @Query("select new com.mchis.user.UserKey(u.id, u.email) from User u where u.id in :ids")
+    List<UserKey> findKeysByIdIn(@Param("ids") Collection<Integer> ids);
 }